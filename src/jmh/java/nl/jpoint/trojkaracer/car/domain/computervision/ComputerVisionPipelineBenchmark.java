@@ -0,0 +1,246 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmarks the separate stages of the lane detection pipeline of the {@link ComputerVisionHelper}, and the pipeline as a whole, on a
+ * corpus of recorded track frames at several resolutions. Run it with the <code>benchmark</code> Maven profile (see the pom), which also
+ * enables the GC profiler to report the allocation rate.
+ * <p>The corpus is read from the directory in the <code>benchmark.corpus</code> system property (all jpg and png files in it, in name
+ * order). When the directory does not contain any images, which is the case for the default directory until recorded track frames are
+ * checked in there, a synthetic frame with two lane lines is used instead (generated from a fixed seed) and a warning is logged. Results
+ * are only comparable between runs on the same corpus.</p>
+ * <p>Every stage is fed with the output of the previous stages for the same frame (calculated once during setup) and writes into a
+ * preallocated destination, so each benchmark only measures the cost of its own stage. Like the pipeline itself, the stages process the
+ * crop of the region of interest bounds.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ComputerVisionPipelineBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String CORPUS_PROPERTY = "benchmark.corpus";
+    private static final int SYNTHETIC_FRAME_SEED = 42;
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png");
+
+    @Param({"320x240", "640x480", "1280x720"})
+    private String resolution;
+
+    private ComputerVisionHelper computerVisionHelper;
+    private LaneDetectionWorkspace workspace;
+
+    private final List<Mat> frames = new ArrayList<>();
+    private final List<Mat> roiImages = new ArrayList<>();
+    private final List<Mat> roiMasks = new ArrayList<>();
+    private final List<Mat> maskedImages = new ArrayList<>();
+    private final List<Mat> grayImages = new ArrayList<>();
+    private final List<Mat> blurImages = new ArrayList<>();
+    private final List<Mat> edgeImages = new ArrayList<>();
+    private final List<List<Line>> detectedLines = new ArrayList<>();
+
+    private final Mat result = new Mat();
+    private int frameIndex;
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String[] dimensions = resolution.split("x");
+        final Size size = new Size(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+
+        computerVisionHelper = new ComputerVisionHelper(System.getProperty("java.io.tmpdir"));
+        workspace = new LaneDetectionWorkspace();
+
+        for (final Mat image : loadCorpus(size)) {
+            addFrame(image);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workspace.release();
+        result.release();
+        for (final List<Mat> images : Arrays.asList(frames, roiImages, roiMasks, maskedImages, grayImages, blurImages, edgeImages)) {
+            images.forEach(Mat::release);
+            images.clear();
+        }
+        detectedLines.clear();
+    }
+
+    @Benchmark
+    public Mat mask() {
+        final int index = nextFrameIndex();
+        return computerVisionHelper.applyMask(roiImages.get(index), roiMasks.get(index), result);
+    }
+
+    @Benchmark
+    public Mat gray() {
+        return computerVisionHelper.convertBGRToGrayScale(maskedImages.get(nextFrameIndex()), result);
+    }
+
+    @Benchmark
+    public Mat blur() {
+        return computerVisionHelper.removeNoise(grayImages.get(nextFrameIndex()), result);
+    }
+
+    @Benchmark
+    public Mat canny() {
+        return computerVisionHelper.cannyEdgeDetection(blurImages.get(nextFrameIndex()), result);
+    }
+
+    @Benchmark
+    public Mat houghLinesP() {
+        return computerVisionHelper.houghLines(edgeImages.get(nextFrameIndex()), result);
+    }
+
+    @Benchmark
+    public List<Line> filterLines() {
+        return computerVisionHelper.filterLines(detectedLines.get(nextFrameIndex()));
+    }
+
+    @Benchmark
+    public int filterToColor() {
+        final Mat colorImage = computerVisionHelper.filterToColor(frames.get(nextFrameIndex()), new Scalar(15, 5, 25), new Scalar(180, 250, 250));
+        final int nonBlackPixels = computerVisionHelper.findAmountOfNonBlackPixels(colorImage);
+        colorImage.release();
+        return nonBlackPixels;
+    }
+
+    @Benchmark
+    public List<Line> getLaneLines() {
+        return computerVisionHelper.getLaneLines(frames.get(nextFrameIndex()));
+    }
+
+    @Benchmark
+    public List<Line> getLaneLinesWithWorkspace() {
+        return computerVisionHelper.getLaneLines(frames.get(nextFrameIndex()), workspace);
+    }
+
+    @Benchmark
+    public LaneSegments detectLaneSegments() {
+        return computerVisionHelper.detectLaneSegments(frames.get(nextFrameIndex()), workspace);
+    }
+
+    private int nextFrameIndex() {
+        final int index = frameIndex;
+        frameIndex = (frameIndex + 1) % frames.size();
+        return index;
+    }
+
+    private void addFrame(final Mat frame) {
+        final ComputerVisionParameterSet parameters = computerVisionHelper.getParameters();
+
+        final RegionOfInterestMask regionOfInterestMask = new RegionOfInterestMask();
+        final Mat roiMask = regionOfInterestMask.get(frame,
+                parameters.getRoiXOffsetPercentage(),
+                parameters.getRoiYTopPercentage(),
+                parameters.getRoiYMiddlePercentage(),
+                parameters.getRoiYBottomPercentage()).clone();
+        final Mat roiImage = frame.submat(regionOfInterestMask.getBounds());
+        regionOfInterestMask.release();
+
+        final Mat maskedImage = computerVisionHelper.applyMask(roiImage, roiMask, new Mat());
+        final Mat grayImage = computerVisionHelper.convertBGRToGrayScale(maskedImage, new Mat());
+        final Mat blurImage = computerVisionHelper.removeNoise(grayImage, new Mat());
+        final Mat edgeImage = computerVisionHelper.cannyEdgeDetection(blurImage, new Mat());
+
+        frames.add(frame);
+        roiImages.add(roiImage);
+        roiMasks.add(roiMask);
+        maskedImages.add(maskedImage);
+        grayImages.add(grayImage);
+        blurImages.add(blurImage);
+        edgeImages.add(edgeImage);
+        detectedLines.add(computerVisionHelper.getLaneLines(frame));
+    }
+
+    private static List<Mat> loadCorpus(final Size size) {
+        final List<Mat> images = new ArrayList<>();
+
+        final String corpus = System.getProperty(CORPUS_PROPERTY);
+        final File[] files = corpus == null ? null : new File(corpus).listFiles(ComputerVisionPipelineBenchmark::isImage);
+        if (files != null) {
+            Arrays.sort(files);
+            for (final File file : files) {
+                final Mat image = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+                if (!image.empty()) {
+                    images.add(resize(image, size));
+                }
+            }
+        }
+
+        if (images.isEmpty()) {
+            LOGGER.warn("****************************************************************************************************");
+            LOGGER.warn("No track frames found in the benchmark corpus ({}); benchmarking a SYNTHETIC frame instead.", corpus);
+            LOGGER.warn("The results do not reflect the performance on the real track. Use -D{}=<directory with frames>.", CORPUS_PROPERTY);
+            LOGGER.warn("****************************************************************************************************");
+            images.add(createSyntheticFrame(size));
+        }
+        return images;
+    }
+
+    private static boolean isImage(final File file) {
+        final String name = file.getName().toLowerCase();
+        return file.isFile() && IMAGE_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    private static Mat resize(final Mat image, final Size size) {
+        final Mat resized = new Mat();
+        Imgproc.resize(image, resized, size, 0, 0, Imgproc.INTER_AREA);
+        image.release();
+        return resized;
+    }
+
+    /**
+     * Creates a noisy, gray "track" with two white lane lines converging towards the top of the frame.
+     */
+    private static Mat createSyntheticFrame(final Size size) {
+        final Mat frame = new Mat(size, CvType.CV_8UC3, new Scalar(90, 90, 90));
+        final Mat noise = new Mat(size, CvType.CV_8UC3);
+        Core.setRNGSeed(SYNTHETIC_FRAME_SEED);
+        Core.randn(noise, 0, 20);
+        Core.add(frame, noise, frame);
+        noise.release();
+
+        final double width = size.width;
+        final double height = size.height;
+        final int thickness = Math.max(2, (int) (width / 80));
+        Imgproc.line(frame, new Point(width * 0.15, height), new Point(width * 0.42, height * 0.5), new Scalar(240, 240, 240), thickness);
+        Imgproc.line(frame, new Point(width * 0.85, height), new Point(width * 0.58, height * 0.5), new Scalar(240, 240, 240), thickness);
+        return frame;
+    }
+}
@@ -3,25 +3,41 @@ package nl.jpoint.trojkaracer.car;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pi4j.io.gpio.GpioController;
 import com.pi4j.io.gpio.GpioFactory;
-import java.time.Duration;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.HashMap;
 import java.util.Map;
+import nl.jpoint.trojkaracer.car.api.CommandFanIn;
+import nl.jpoint.trojkaracer.car.api.SessionStatusStreams;
+import nl.jpoint.trojkaracer.car.api.SessionsEndpoint;
 import nl.jpoint.trojkaracer.car.api.WebSocketCarControllerHandler;
+import nl.jpoint.trojkaracer.car.api.WebSocketComputerVisionControllerHandler;
 import nl.jpoint.trojkaracer.car.api.WebSocketRaceControllerHandler;
+import nl.jpoint.trojkaracer.car.api.WebSocketTelemetryHandler;
+import nl.jpoint.trojkaracer.car.api.WebSocketVideoHandler;
 import nl.jpoint.trojkaracer.car.application.RaceControlService;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.FrameBus;
+import nl.jpoint.trojkaracer.car.domain.FrameRateGovernor;
 import nl.jpoint.trojkaracer.car.domain.ViewRetriever;
 import nl.jpoint.trojkaracer.car.domain.car.Car;
 import nl.jpoint.trojkaracer.car.domain.car.CarEngine;
 import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
 import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
+import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters;
+import nl.jpoint.trojkaracer.car.domain.computervision.DebugImageWriter;
+import nl.jpoint.trojkaracer.car.domain.computervision.LiveVideo;
 import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
 import nl.jpoint.trojkaracer.car.domain.race.RaceStatus;
+import nl.jpoint.trojkaracer.car.domain.telemetry.FrameTelemetry;
 import org.opencv.core.Core;
-import org.opencv.core.Mat;
 import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.reactive.HandlerMapping;
@@ -35,6 +51,7 @@ import reactor.core.CoreSubscriber;
 import reactor.core.publisher.DirectProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Main executable for the Car application. This class starts the whole Car Application.
@@ -42,10 +59,11 @@ import reactor.core.publisher.UnicastProcessor;
 @SpringBootApplication(scanBasePackages = { "nl.jpoint.trojkaracer.car.infrastructure", "nl.jpoint.trojkaracer.car.application", "nl.jpoint.trojkaracer.car" })
 public class CarApplication {
 
-    private static final int IMAGE_FEED_INTERVAL_IN_MILLIS = 200;
-    private static final int CAR_STATUS_REPLAY_DURATION_IN_MILLIS = 5000;
     private static final String CAR_WEBSOCKET_API_URL = "/websocket/car";
     private static final String RACE_WEBSOCKET_API_URL = "/websocket/race";
+    private static final String VISION_WEBSOCKET_API_URL = "/websocket/vision";
+    private static final String VIDEO_WEBSOCKET_API_URL = "/websocket/video";
+    private static final String TELEMETRY_WEBSOCKET_API_URL = "/websocket/telemetry";
 
     /**
      * Application's main method that starts the Spring boot application with the context as defined in this class.
@@ -65,8 +83,19 @@ public class CarApplication {
     }
 
     @Bean
-    public Car car(final CarEngine carEngine) {
-        return new Car(carEngine);
+    public Car car(final CarEngine carEngine, final PipelineMetrics pipelineMetrics) {
+        return new Car(carEngine, pipelineMetrics);
+    }
+
+    // Metrics Setup
+    @Bean
+    public PipelineMetrics pipelineMetrics(final MeterRegistry meterRegistry) {
+        return new PipelineMetrics(meterRegistry);
+    }
+
+    @Bean
+    public FrameTelemetry frameTelemetry(@Value("${telemetry.buffer.size:64}") final int bufferSize) {
+        return new FrameTelemetry(bufferSize);
     }
 
     // Publishers and Subscribers Setup
@@ -83,7 +112,7 @@ public class CarApplication {
     @Bean
     public Flux<CarStatus> carStatusFlux(final UnicastProcessor<CarStatus> carStatusProcessor) {
         return carStatusProcessor
-                .replay(Duration.ofMillis(CAR_STATUS_REPLAY_DURATION_IN_MILLIS))
+                .replay(1)
                 .autoConnect();
     }
 
@@ -104,11 +133,18 @@ public class CarApplication {
     public HandlerMapping handlerMapping(final Flux<CarStatus> carStatusFlux,
                                          final Flux<RaceStatus> raceStatusFlux,
                                          final ObjectMapper objectMapper,
-                                         final CoreSubscriber<DriveCommand> manualDriveCommandSubscriber,
-                                         final RaceControlService raceControlService) {
+                                         final CommandFanIn carCommandFanIn,
+                                         final RaceControlService raceControlService,
+                                         final ComputerVisionHelper computerVisionHelper,
+                                         final SessionStatusStreams carStatusStreams,
+                                         final LiveVideo liveVideo,
+                                         final FrameTelemetry frameTelemetry) {
         final Map<String, WebSocketHandler> map = new HashMap<>();
-        map.put(CAR_WEBSOCKET_API_URL, new WebSocketCarControllerHandler(carStatusFlux, objectMapper, manualDriveCommandSubscriber));
+        map.put(CAR_WEBSOCKET_API_URL, new WebSocketCarControllerHandler(carStatusFlux, objectMapper, carCommandFanIn, carStatusStreams));
         map.put(RACE_WEBSOCKET_API_URL, new WebSocketRaceControllerHandler(raceStatusFlux, objectMapper, raceControlService));
+        map.put(VISION_WEBSOCKET_API_URL, new WebSocketComputerVisionControllerHandler(computerVisionHelper, objectMapper));
+        map.put(VIDEO_WEBSOCKET_API_URL, new WebSocketVideoHandler(liveVideo));
+        map.put(TELEMETRY_WEBSOCKET_API_URL, new WebSocketTelemetryHandler(frameTelemetry));
 
         final SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping();
         mapping.setOrder(10);
@@ -116,6 +152,23 @@ public class CarApplication {
         return mapping;
     }
 
+    @Bean
+    public SessionStatusStreams carStatusStreams(@Value("${websocket.car.status.max.rate:10}") final int maxStatusesPerSecond) {
+        return new SessionStatusStreams(maxStatusesPerSecond);
+    }
+
+    @Bean
+    public CommandFanIn carCommandFanIn(final CoreSubscriber<DriveCommand> manualDriveCommandSubscriber,
+                                        @Value("${websocket.car.command.rate:20}") final int commandsPerSecond,
+                                        @Value("${websocket.car.command.burst:10}") final int commandBurst) {
+        return new CommandFanIn(manualDriveCommandSubscriber, commandsPerSecond, commandBurst);
+    }
+
+    @Bean
+    public SessionsEndpoint sessionsEndpoint(final SessionStatusStreams carStatusStreams, final CommandFanIn carCommandFanIn) {
+        return new SessionsEndpoint(carStatusStreams, carCommandFanIn);
+    }
+
     @Bean
     public WebSocketHandlerAdapter handlerAdapter() {
         return new WebSocketHandlerAdapter(webSocketService());
@@ -134,23 +187,84 @@ public class CarApplication {
 
     // Image publishing Flux setup
     @Bean
-    public Flux<Mat> viewPublisher(final ViewRetriever viewRetriever) {
-        return Flux.interval(Duration.ofMillis(IMAGE_FEED_INTERVAL_IN_MILLIS))
-                .map(index -> viewRetriever.getView())
-                .map(frame -> {
-                    Core.flip(frame, frame, -1);
-                    return frame;
-                });
+    public FrameBus frameBus(final ViewRetriever viewRetriever, final PipelineMetrics pipelineMetrics) {
+        return new FrameBus(viewRetriever, Schedulers.parallel(), pipelineMetrics);
+    }
+
+    @Bean
+    public Flux<Frame> viewPublisher(final FrameBus frameBus) {
+        return frameBus.getFrames();
+    }
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = "vision.governor.enabled", havingValue = "true")
+    public FrameRateGovernor frameRateGovernor(final ViewRetriever viewRetriever,
+                                               final Flux<RaceStatus> raceStatusFlux,
+                                               final Flux<CarStatus> carStatusFlux,
+                                               @Value("${vision.governor.idle.fps:5}") final int idleFramesPerSecond,
+                                               @Value("${vision.governor.racing.min.fps:10}") final int minRacingFramesPerSecond,
+                                               @Value("${vision.governor.max.fps:20}") final int maxFramesPerSecond,
+                                               @Value("${vision.governor.start.signal.fps:30}") final int startSignalFramesPerSecond) {
+        return new FrameRateGovernor(viewRetriever, raceStatusFlux, carStatusFlux,
+                idleFramesPerSecond, minRacingFramesPerSecond, maxFramesPerSecond, startSignalFramesPerSecond);
     }
 
+    /**
+     * Opens the camera with the configured resolution and frame rate (a value of 0 keeps the camera default). In luma only mode the camera
+     * is asked for its raw YUYV frames instead of BGR converted ones, so the Y plane can be taken from them without any color conversion.
+     */
     @Bean(destroyMethod = "release")
-    public VideoCapture camera() {
-        return new VideoCapture(0);
+    @Profile("!replay")
+    public VideoCapture camera(@Value("${camera.capture.width:0}") final int width,
+                               @Value("${camera.capture.height:0}") final int height,
+                               @Value("${camera.capture.fps:0}") final int framesPerSecond,
+                               @Value("${camera.capture.luma.only:false}") final boolean lumaOnly) {
+        final VideoCapture camera = new VideoCapture(0);
+        if (width > 0 && height > 0) {
+            camera.set(Videoio.CAP_PROP_FRAME_WIDTH, width);
+            camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, height);
+        }
+        if (framesPerSecond > 0) {
+            camera.set(Videoio.CAP_PROP_FPS, framesPerSecond);
+        }
+        if (lumaOnly) {
+            camera.set(Videoio.CAP_PROP_FOURCC, VideoWriter.fourcc('Y', 'U', 'Y', 'V'));
+            camera.set(Videoio.CAP_PROP_CONVERT_RGB, 0);
+        }
+        return camera;
     }
 
     @Bean
-    public ComputerVisionHelper computerVisionHelper(@Value("debug.image.storage.path") final String imagePath) {
-        return new ComputerVisionHelper("/home/pi/");
+    public ComputerVisionHelper computerVisionHelper(@Value("${debug.image.storage.path}") final String imagePath,
+                                                     @Value("${vision.processing.scale:1}") final double processingScale,
+                                                     final PipelineMetrics pipelineMetrics) {
+        final ComputerVisionHelper computerVisionHelper = new ComputerVisionHelper(imagePath, pipelineMetrics);
+        computerVisionHelper.updateParameter(ComputerVisionParameters.PROCESSING_SCALE, processingScale);
+        return computerVisionHelper;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public DebugImageWriter debugImageWriter(final ComputerVisionHelper computerVisionHelper,
+                                             @Value("${debug.image.enabled:false}") final boolean enabled,
+                                             @Value("${debug.image.sample.every.nth.frame:1}") final int everyNthFrame,
+                                             @Value("${debug.image.sample.max.per.second:2}") final int maxFramesPerSecond,
+                                             @Value("${debug.image.queue.capacity:2}") final int queueCapacity) {
+        if (!enabled) {
+            return DebugImageWriter.disabled();
+        }
+        return new DebugImageWriter(computerVisionHelper, everyNthFrame, maxFramesPerSecond, queueCapacity);
+    }
+
+    @Bean(destroyMethod = "stop")
+    public LiveVideo liveVideo(final ComputerVisionHelper computerVisionHelper,
+                               @Value("${video.enabled:true}") final boolean enabled,
+                               @Value("${video.max.fps:10}") final int maxFramesPerSecond,
+                               @Value("${video.jpeg.quality.min:30}") final int minQuality,
+                               @Value("${video.jpeg.quality.max:80}") final int maxQuality) {
+        if (!enabled) {
+            return LiveVideo.disabled();
+        }
+        return new LiveVideo(computerVisionHelper, maxFramesPerSecond, minQuality, maxQuality);
     }
 
 }
@@ -1,22 +1,29 @@
 package nl.jpoint.trojkaracer.car;
 
 import java.time.Duration;
+import nl.jpoint.trojkaracer.car.domain.Frame;
 import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
+import nl.jpoint.trojkaracer.car.domain.computervision.DebugImageWriter;
+import nl.jpoint.trojkaracer.car.domain.computervision.LiveVideo;
 import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
 import nl.jpoint.trojkaracer.car.domain.driver.Driver;
 import nl.jpoint.trojkaracer.car.domain.driver.SimpleDriver;
 import nl.jpoint.trojkaracer.car.domain.driver.WrappingDriver;
 import nl.jpoint.trojkaracer.car.domain.finisher.AutomaticallyTimedFinisher;
+import nl.jpoint.trojkaracer.car.domain.finisher.FinishLineFinisher;
 import nl.jpoint.trojkaracer.car.domain.finisher.Finisher;
 import nl.jpoint.trojkaracer.car.domain.finisher.NoFinisher;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
 import nl.jpoint.trojkaracer.car.domain.navigator.BasicNavigator;
 import nl.jpoint.trojkaracer.car.domain.navigator.FixedPathNavigator;
 import nl.jpoint.trojkaracer.car.domain.navigator.Navigator;
 import nl.jpoint.trojkaracer.car.domain.starter.AutomaticallyTimedStarter;
 import nl.jpoint.trojkaracer.car.domain.starter.RedLightStarter;
+import nl.jpoint.trojkaracer.car.domain.starter.StartLightStarter;
 import nl.jpoint.trojkaracer.car.domain.starter.Starter;
-import org.opencv.core.Mat;
+import nl.jpoint.trojkaracer.car.domain.telemetry.FrameTelemetry;
 import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import reactor.core.publisher.Flux;
@@ -28,9 +35,15 @@ import reactor.core.publisher.Flux;
 public class RoleWiringConfiguration {
 
     @Bean
-    public Navigator navigator(final Flux<Mat> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
+    public Navigator navigator(final Flux<Frame> viewPublisher,
+                               final ComputerVisionHelper computerVisionHelper,
+                               final DebugImageWriter debugImageWriter,
+                               final PipelineMetrics pipelineMetrics,
+                               final LiveVideo liveVideo,
+                               final FrameTelemetry frameTelemetry,
+                               @Value("${vision.pipelined.enabled:false}") final boolean pipelined) {
 //        return new FixedPathNavigator();
-        return new BasicNavigator(viewPublisher, computerVisionHelper);
+        return new BasicNavigator(viewPublisher, computerVisionHelper, debugImageWriter, pipelineMetrics, pipelined, liveVideo, frameTelemetry);
     }
 
     @Bean
@@ -44,13 +57,32 @@ public class RoleWiringConfiguration {
     }
 
     @Bean
-    public Starter starter(final Flux<Mat> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
+    public Starter starter(final Flux<Frame> viewPublisher,
+                           final ComputerVisionHelper computerVisionHelper,
+                           final PipelineMetrics pipelineMetrics,
+                           @Value("${starter.light.enabled:false}") final boolean startLightEnabled,
+                           @Value("${starter.light.roi.x:0.4}") final double roiXPercentage,
+                           @Value("${starter.light.roi.y:0.05}") final double roiYPercentage,
+                           @Value("${starter.light.roi.width:0.2}") final double roiWidthPercentage,
+                           @Value("${starter.light.roi.height:0.25}") final double roiHeightPercentage,
+                           @Value("${starter.light.confirmation.frames:2}") final int confirmationFrames) {
+        if (startLightEnabled) {
+            return new StartLightStarter(viewPublisher, computerVisionHelper, pipelineMetrics,
+                    roiXPercentage, roiYPercentage, roiWidthPercentage, roiHeightPercentage, confirmationFrames);
+        }
         return new AutomaticallyTimedStarter();
 //        return new RedLightStarter(viewPublisher, computerVisionHelper);
     }
 
     @Bean
-    public Finisher finisher(final Flux<Mat> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
+    public Finisher finisher(final Flux<Frame> viewPublisher,
+                             final ComputerVisionHelper computerVisionHelper,
+                             final PipelineMetrics pipelineMetrics,
+                             @Value("${finisher.line.enabled:false}") final boolean finishLineEnabled,
+                             @Value("${finisher.line.confirmation.frames:2}") final int confirmationFrames) {
+        if (finishLineEnabled) {
+            return new FinishLineFinisher(viewPublisher, pipelineMetrics, confirmationFrames);
+        }
 //        return new NoFinisher();
         return new AutomaticallyTimedFinisher(Duration.ofSeconds(2));
     }
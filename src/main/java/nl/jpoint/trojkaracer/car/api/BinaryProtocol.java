@@ -0,0 +1,143 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
+import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
+import nl.jpoint.trojkaracer.car.domain.race.RaceStatus;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketSession;
+
+/**
+ * Compact binary alternative to the JSON messages of the car and race websockets. Clients that request the {@link #SUB_PROTOCOL} sub
+ * protocol during the handshake exchange binary frames of a few fixed bytes; all other clients keep exchanging JSON text frames.
+ * <ul>
+ *     <li>car control (client to car): a single byte, the code of the {@link CarControlEvent.Type};</li>
+ *     <li>race control (client to car): a single byte, the code of the {@link RaceControlEvent.Type};</li>
+ *     <li>car status (car to client): {@link #CAR_STATUS}, followed by the speed and the direction (in degrees) as signed bytes;</li>
+ *     <li>race status (car to client): {@link #RACE_STATUS}, followed by the code of the {@link RaceStatus}.</li>
+ * </ul>
+ * <p>Every constant has an explicit code of its own, independent of the order in which the constants are declared. The codes are part of the
+ * protocol: they must never be changed or reused, new constants get new codes.</p>
+ * <p>Control messages are decoded straight from the payload, without intermediate Strings or events; the drive commands are shared
+ * instances.</p>
+ */
+final class BinaryProtocol {
+
+    static final String SUB_PROTOCOL = "trojka.binary.v1";
+    static final List<String> SUB_PROTOCOLS = Collections.singletonList(SUB_PROTOCOL);
+
+    static final byte CAR_STATUS = 1;
+    static final byte RACE_STATUS = 2;
+    static final int INVALID = -1;
+
+    private static final int CAR_STATUS_LENGTH = 3;
+    private static final int RACE_STATUS_LENGTH = 2;
+    private static final Map<CarControlEvent.Type, Byte> CAR_CONTROL_CODES = new EnumMap<>(CarControlEvent.Type.class);
+    private static final Map<RaceControlEvent.Type, Byte> RACE_CONTROL_CODES = new EnumMap<>(RaceControlEvent.Type.class);
+    private static final Map<RaceStatus, Byte> RACE_STATUS_CODES = new EnumMap<>(RaceStatus.class);
+
+    static {
+        CAR_CONTROL_CODES.put(CarControlEvent.Type.FORWARD, (byte) 0);
+        CAR_CONTROL_CODES.put(CarControlEvent.Type.BACKWARD, (byte) 1);
+        CAR_CONTROL_CODES.put(CarControlEvent.Type.LEFT, (byte) 2);
+        CAR_CONTROL_CODES.put(CarControlEvent.Type.RIGHT, (byte) 3);
+        CAR_CONTROL_CODES.put(CarControlEvent.Type.STOP, (byte) 4);
+
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.MANUAL, (byte) 0);
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.INIT_RACE, (byte) 1);
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.RACE, (byte) 2);
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.STOP, (byte) 3);
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.PAUSE, (byte) 4);
+        RACE_CONTROL_CODES.put(RaceControlEvent.Type.CONTINUE, (byte) 5);
+
+        RACE_STATUS_CODES.put(RaceStatus.MANUAL_DRIVING, (byte) 0);
+        RACE_STATUS_CODES.put(RaceStatus.AWAITING_START_SIGNAL, (byte) 1);
+        RACE_STATUS_CODES.put(RaceStatus.RACING, (byte) 2);
+        RACE_STATUS_CODES.put(RaceStatus.RACING_PAUSED, (byte) 3);
+        requireCodeForEveryConstant(RaceStatus.class, RACE_STATUS_CODES);
+    }
+
+    private static final CarControlEvent.Type[] CAR_CONTROL_TYPES = byCode(CarControlEvent.Type.class, CAR_CONTROL_CODES);
+    private static final RaceControlEvent.Type[] RACE_CONTROL_TYPES = byCode(RaceControlEvent.Type.class, RACE_CONTROL_CODES);
+    private static final DriveCommand[] DRIVE_COMMANDS = new DriveCommand[CAR_CONTROL_TYPES.length];
+
+    static {
+        CAR_CONTROL_CODES.forEach((type, code) -> DRIVE_COMMANDS[code] = new CarControlEvent(type).toDriveCommand());
+    }
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Builds the lookup table from code to constant; codes without a constant are <code>null</code>.
+     */
+    private static <E extends Enum<E>> E[] byCode(final Class<E> type, final Map<E, Byte> codes) {
+        requireCodeForEveryConstant(type, codes);
+
+        final E[] constants = Arrays.copyOf(type.getEnumConstants(), codes.values().stream().mapToInt(Byte::intValue).max().orElse(-1) + 1);
+        Arrays.fill(constants, null);
+        codes.forEach((constant, code) -> {
+            if (code < 0 || constants[code] != null) {
+                throw new IllegalStateException(String.format("Invalid binary protocol code for %s (code: %s)", constant, code));
+            }
+            constants[code] = constant;
+        });
+        return constants;
+    }
+
+    private static <E extends Enum<E>> void requireCodeForEveryConstant(final Class<E> type, final Map<E, Byte> codes) {
+        if (codes.size() != type.getEnumConstants().length) {
+            throw new IllegalStateException(String.format("Not every constant has a binary protocol code (type: %s)", type.getSimpleName()));
+        }
+    }
+
+    /**
+     * Returns whether the binary sub protocol was negotiated for the given session.
+     */
+    static boolean isNegotiated(final WebSocketSession session) {
+        return SUB_PROTOCOL.equals(session.getHandshakeInfo().getSubProtocol());
+    }
+
+    /**
+     * Reads the control byte of a control message.
+     * @param payload the payload of the message.
+     * @return the control byte, or {@link #INVALID} if the message has no payload.
+     */
+    static int readControl(final DataBuffer payload) {
+        return payload.readableByteCount() > 0 ? payload.read() : INVALID;
+    }
+
+    static boolean isCarControl(final int control) {
+        return control >= 0 && control < CAR_CONTROL_TYPES.length && CAR_CONTROL_TYPES[control] != null;
+    }
+
+    static DriveCommand toDriveCommand(final int control) {
+        return DRIVE_COMMANDS[control];
+    }
+
+    static boolean isRaceControl(final int control) {
+        return control >= 0 && control < RACE_CONTROL_TYPES.length && RACE_CONTROL_TYPES[control] != null;
+    }
+
+    static RaceControlEvent.Type toRaceControlType(final int control) {
+        return RACE_CONTROL_TYPES[control];
+    }
+
+    static DataBuffer encode(final CarStatus carStatus, final DataBufferFactory bufferFactory) {
+        return bufferFactory.allocateBuffer(CAR_STATUS_LENGTH)
+                .write(CAR_STATUS)
+                .write((byte) carStatus.getSpeed().getSpeedValue())
+                .write((byte) carStatus.getDirection().getDegrees());
+    }
+
+    static DataBuffer encode(final RaceStatus raceStatus, final DataBufferFactory bufferFactory) {
+        return bufferFactory.allocateBuffer(RACE_STATUS_LENGTH)
+                .write(RACE_STATUS)
+                .write(RACE_STATUS_CODES.get(raceStatus));
+    }
+}
@@ -33,7 +33,7 @@ class CarControlMessageSubscriber implements CoreSubscriber<CarControlEvent>  {
 
     @Override
     public void onNext(final CarControlEvent carControlEvent) {
-        LOGGER.debug("RaceControlMessageSubscriber handling onNext with message '{}'.", carControlEvent);
+        LOGGER.trace("RaceControlMessageSubscriber handling onNext with message '{}'.", carControlEvent);
         manualDriveCommandSubscriber.onNext(carControlEvent.toDriveCommand());
     }
 
@@ -0,0 +1,162 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
+import nl.jpoint.trojkaracer.car.domain.driver.IncrementalDriveCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+
+/**
+ * Fans the drive commands of all car websocket sessions in to the manual driver. Every session is isolated from the others:
+ * <ul>
+ *     <li>only the values of a session reach the manual driver, never its errors or its completion, so a failing or disconnecting session
+ *     does not affect the other sessions;</li>
+ *     <li>only one session, the pilot, drives the car; the other sessions are read only. The first session to connect becomes the pilot,
+ *     and when the pilot disconnects, the longest connected remaining session takes over;</li>
+ *     <li>the commands of every session are rate limited by a token bucket of its own.</li>
+ * </ul>
+ * <p>Stop commands are always let through, from every session and regardless of the rate limit. The number of accepted and dropped commands
+ * is kept for every open session (see {@link SessionsEndpoint}).</p>
+ */
+public class CommandFanIn {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final DriveCommand STOP_COMMAND = IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.STOP);
+
+    private final CoreSubscriber<DriveCommand> manualDriveCommandSubscriber;
+    private final int commandsPerSecond;
+    private final int commandBurst;
+    // Guarded by this; sessions connect and disconnect rarely
+    private final Map<String, SessionCommands> sessions = new LinkedHashMap<>();
+    private SessionCommands pilot;
+
+    /**
+     * Creates a new fan in.
+     * @param manualDriveCommandSubscriber the subscriber of the manual drive commands.
+     * @param commandsPerSecond the maximum number of commands per second of a single session.
+     * @param commandBurst the maximum number of commands a single session can send at once, after it was quiet for a while.
+     */
+    public CommandFanIn(final CoreSubscriber<DriveCommand> manualDriveCommandSubscriber, final int commandsPerSecond, final int commandBurst) {
+        if (commandsPerSecond < 1 || commandBurst < 1) {
+            throw new IllegalArgumentException(String.format("The command rate (%s) and burst (%s) must be positive", commandsPerSecond,
+                    commandBurst));
+        }
+
+        // Sessions deliver their commands on threads of their own
+        this.manualDriveCommandSubscriber = Operators.serialize(manualDriveCommandSubscriber);
+        this.commandsPerSecond = commandsPerSecond;
+        this.commandBurst = commandBurst;
+    }
+
+    /**
+     * Connects the commands of a session; the session is disconnected when its commands complete or fail.
+     * @param sessionId the id of the session.
+     * @param commands the commands of the session.
+     */
+    public void connect(final String sessionId, final Flux<DriveCommand> commands) {
+        final SessionCommands session = new SessionCommands(sessionId, new TokenBucket(commandsPerSecond, commandBurst, System.nanoTime()));
+        register(session);
+
+        commands
+                .doFinally(signal -> unregister(session))
+                .subscribe(command -> submit(session, command),
+                        e -> LOGGER.warn("Commands of session with id '{}' failed; disconnecting it.", sessionId, e));
+    }
+
+    /**
+     * Records a message of the given session that could not be converted into a command.
+     * @param sessionId the id of the session.
+     */
+    public void malformed(final String sessionId) {
+        final SessionCommands session;
+        synchronized (this) {
+            session = sessions.get(sessionId);
+        }
+        if (session != null) {
+            session.malformed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the command statistics of all open sessions, by session id.
+     */
+    public synchronized Map<String, Map<String, Long>> getStatistics() {
+        final Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        sessions.forEach((sessionId, session) -> statistics.put(sessionId, session.toMap(session == pilot)));
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private void submit(final SessionCommands session, final DriveCommand command) {
+        if (STOP_COMMAND.equals(command)) {
+            session.accepted.incrementAndGet();
+            manualDriveCommandSubscriber.onNext(command);
+        } else if (!isPilot(session)) {
+            session.readOnly.incrementAndGet();
+        } else if (!session.tokenBucket.tryTake(System.nanoTime())) {
+            session.rateLimited.incrementAndGet();
+        } else {
+            session.accepted.incrementAndGet();
+            manualDriveCommandSubscriber.onNext(command);
+        }
+    }
+
+    private synchronized boolean isPilot(final SessionCommands session) {
+        return session == pilot;
+    }
+
+    private synchronized void register(final SessionCommands session) {
+        sessions.put(session.sessionId, session);
+        if (pilot == null) {
+            pilot = session;
+            LOGGER.info("Session with id '{}' is the pilot.", session.sessionId);
+        } else {
+            LOGGER.info("Session with id '{}' is read only; session with id '{}' is the pilot.", session.sessionId, pilot.sessionId);
+        }
+    }
+
+    private synchronized void unregister(final SessionCommands session) {
+        sessions.remove(session.sessionId, session);
+        if (pilot == session) {
+            pilot = sessions.isEmpty() ? null : sessions.values().iterator().next();
+            if (pilot != null) {
+                LOGGER.info("The pilot left; session with id '{}' is the pilot now.", pilot.sessionId);
+            }
+        }
+    }
+
+    /**
+     * The commands of a single session: its rate limiter and statistics.
+     */
+    private static final class SessionCommands {
+
+        private final String sessionId;
+        private final TokenBucket tokenBucket;
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong readOnly = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong malformed = new AtomicLong();
+
+        private SessionCommands(final String sessionId, final TokenBucket tokenBucket) {
+            this.sessionId = sessionId;
+            this.tokenBucket = tokenBucket;
+        }
+
+        private Map<String, Long> toMap(final boolean isPilot) {
+            final Map<String, Long> map = new LinkedHashMap<>();
+            map.put("pilot", isPilot ? 1L : 0L);
+            map.put("accepted", accepted.get());
+            map.put("droppedReadOnly", readOnly.get());
+            map.put("droppedRateLimited", rateLimited.get());
+            map.put("droppedMalformed", malformed.get());
+            return map;
+        }
+    }
+}
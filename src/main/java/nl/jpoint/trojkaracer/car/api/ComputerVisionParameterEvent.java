@@ -0,0 +1,26 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.ToString;
+import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters;
+
+/**
+ * Event for changing a single computer vision parameter, e.g. <code>{"parameter": "CANNY_THRESHOLD1", "value": 60}</code>. Color parameters
+ * take an array of numbers as value.
+ */
+@Getter
+@ToString
+public class ComputerVisionParameterEvent {
+
+    private final ComputerVisionParameters parameter;
+    private final Object value;
+
+    @JsonCreator
+    public ComputerVisionParameterEvent(@JsonProperty("parameter") final ComputerVisionParameters parameter,
+                                        @JsonProperty("value") final Object value) {
+        this.parameter = parameter;
+        this.value = value;
+    }
+}
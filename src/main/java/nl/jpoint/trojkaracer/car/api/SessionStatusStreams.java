@@ -0,0 +1,84 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import reactor.core.publisher.Flux;
+
+/**
+ * Limits the rate at which a status stream is sent over a websocket session. Every session gets at most one status per interval, always the
+ * latest one; the statuses in between are conflated. When the client cannot keep up with even that rate, only the latest status is kept
+ * until it can (latest wins), so a slow client never causes statuses to be buffered.
+ * <p>The number of received, sent and conflated statuses is kept for every open session (see {@link SessionsEndpoint}).</p>
+ */
+public class SessionStatusStreams {
+
+    private final Duration minInterval;
+    private final ConcurrentMap<String, SessionStatistics> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new session status streams.
+     * @param maxStatusesPerSecond the maximum number of statuses sent to a single session per second.
+     */
+    public SessionStatusStreams(final int maxStatusesPerSecond) {
+        if (maxStatusesPerSecond < 1) {
+            throw new IllegalArgumentException("The maximum number of statuses per second must be positive: " + maxStatusesPerSecond);
+        }
+        this.minInterval = Duration.ofNanos(Duration.ofSeconds(1).toNanos() / maxStatusesPerSecond);
+    }
+
+    /**
+     * Returns the rate limited, conflated stream of statuses to send over the given session.
+     * @param sessionId the id of the session.
+     * @param statuses the statuses; a new subscriber should get the current status first.
+     * @param <T> the type of the statuses.
+     * @return the statuses to send over the session.
+     */
+    public <T> Flux<T> forSession(final String sessionId, final Flux<T> statuses) {
+        return Flux.defer(() -> {
+            final SessionStatistics statistics = new SessionStatistics();
+            sessions.put(sessionId, statistics);
+
+            return statuses
+                    .doOnNext(status -> statistics.received.incrementAndGet())
+                    .sample(minInterval)
+                    .onBackpressureLatest()
+                    .doOnNext(status -> statistics.sent.incrementAndGet())
+                    .doFinally(signal -> sessions.remove(sessionId, statistics));
+        });
+    }
+
+    /**
+     * Returns the statistics of all open sessions, by session id.
+     */
+    public Map<String, Map<String, Long>> getStatistics() {
+        final Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        sessions.forEach((sessionId, sessionStatistics) -> statistics.put(sessionId, sessionStatistics.toMap()));
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * The statistics of a single session.
+     */
+    private static final class SessionStatistics {
+
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+
+        private Map<String, Long> toMap() {
+            final long sentStatuses = sent.get();
+            final long receivedStatuses = Math.max(received.get(), sentStatuses);
+
+            final Map<String, Long> map = new LinkedHashMap<>();
+            map.put("received", receivedStatuses);
+            map.put("sent", sentStatuses);
+            map.put("conflated", receivedStatuses - sentStatuses);
+            return map;
+        }
+    }
+}
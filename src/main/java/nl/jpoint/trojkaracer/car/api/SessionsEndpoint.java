@@ -0,0 +1,34 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint exposing the statistics of every open car websocket session: the number of received, sent and conflated car statuses
+ * (see {@link SessionStatusStreams}), and whether the session is the pilot and the number of accepted and dropped commands (see
+ * {@link CommandFanIn}).
+ */
+@Endpoint(id = "sessions")
+public class SessionsEndpoint {
+
+    private final SessionStatusStreams carStatusStreams;
+    private final CommandFanIn carCommandFanIn;
+
+    public SessionsEndpoint(final SessionStatusStreams carStatusStreams, final CommandFanIn carCommandFanIn) {
+        this.carStatusStreams = carStatusStreams;
+        this.carCommandFanIn = carCommandFanIn;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Long>> sessions() {
+        final Map<String, Map<String, Long>> sessions = new TreeMap<>();
+        carStatusStreams.getStatistics().forEach((sessionId, statistics) ->
+                sessions.computeIfAbsent(sessionId, id -> new LinkedHashMap<>()).putAll(statistics));
+        carCommandFanIn.getStatistics().forEach((sessionId, statistics) ->
+                sessions.computeIfAbsent(sessionId, id -> new LinkedHashMap<>()).putAll(statistics));
+        return sessions;
+    }
+}
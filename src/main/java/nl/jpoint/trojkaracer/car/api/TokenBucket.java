@@ -0,0 +1,51 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter: the bucket holds at most a capacity of tokens and is refilled at a fixed rate; every permitted action takes a
+ * single token. A full bucket allows a burst of actions, after which actions are only permitted at the refill rate.
+ * <p>The time is passed in (as returned by {@link System#nanoTime()}), so the bucket needs no clock of its own. Instances are not thread
+ * safe.</p>
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillTimestamp;
+
+    /**
+     * Creates a new, full bucket.
+     * @param tokensPerSecond the refill rate.
+     * @param capacity the maximum number of tokens in the bucket (the maximum burst).
+     * @param now the current moment, as returned by {@link System#nanoTime()}.
+     */
+    TokenBucket(final int tokensPerSecond, final int capacity, final long now) {
+        if (tokensPerSecond < 1 || capacity < 1) {
+            throw new IllegalArgumentException(String.format("The rate (%s) and capacity (%s) of a token bucket must be positive",
+                    tokensPerSecond, capacity));
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillTimestamp = now;
+    }
+
+    /**
+     * Takes a token from the bucket, if there is one.
+     * @param now the current moment, as returned by {@link System#nanoTime()}.
+     * @return whether a token was taken; the action is only permitted when it was.
+     */
+    boolean tryTake(final long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillTimestamp) * tokensPerNano);
+        lastRefillTimestamp = now;
+
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
 import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
 import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
 import org.slf4j.Logger;
@@ -11,12 +12,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
-import reactor.core.CoreSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
- * Controller class for controlling through a websocket sent events.
+ * Controller class for controlling through a websocket sent events. Clients that negotiate the {@link BinaryProtocol} exchange binary frames,
+ * all other clients exchange JSON text frames.
  */
 public class WebSocketCarControllerHandler implements WebSocketHandler {
 
@@ -24,38 +25,74 @@ public class WebSocketCarControllerHandler implements WebSocketHandler {
 
     private final Flux<CarStatus> carStatusFlux;
     private final ObjectMapper objectMapper;
-    private final CoreSubscriber<DriveCommand> manualDriveCommandProcessor;
+    private final CommandFanIn commandFanIn;
+    private final SessionStatusStreams carStatusStreams;
 
     private CarStatus currentCarStatus;
 
     public WebSocketCarControllerHandler(final Flux<CarStatus> carStatusFlux,
                                          final ObjectMapper objectMapper,
-                                         final CoreSubscriber<DriveCommand> manualDriveCommandProcessor) {
+                                         final CommandFanIn commandFanIn,
+                                         final SessionStatusStreams carStatusStreams) {
         LOGGER.debug("Creating new {}", this.getClass().getSimpleName());
 
         this.carStatusFlux = carStatusFlux;
         this.objectMapper = objectMapper;
-        this.manualDriveCommandProcessor = manualDriveCommandProcessor;
+        this.commandFanIn = commandFanIn;
+        this.carStatusStreams = carStatusStreams;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return BinaryProtocol.SUB_PROTOCOLS;
     }
 
     @Override
     public Mono<Void> handle(final WebSocketSession session) {
         LOGGER.debug("Connecting new session with id '{}' to the {}.", session.getId(), getClass().getSimpleName());
 
-        // Setup message handler for receiving messages through the websocket
-        session.receive()
+        if (BinaryProtocol.isNegotiated(session)) {
+            return handleBinary(session);
+        }
+
+        // Setup message handler for receiving messages through the websocket; malformed messages are skipped
+        commandFanIn.connect(session.getId(), session.receive()
                 .map(WebSocketMessage::getPayloadAsText)
-                .map(this::toEvent)
-                .map(CarControlEvent::toDriveCommand)
-                .subscribe(manualDriveCommandProcessor);
+                .<DriveCommand>handle((message, sink) -> {
+                    final CarControlEvent event = toEvent(session, message);
+                    if (event != null) {
+                        sink.next(event.toDriveCommand());
+                    }
+                }));
 
         // Setup the flux to send messages over the websocket
-        return session.send(carStatusFlux
+        return session.send(carStatusStreams.forSession(session.getId(), carStatusFlux)
                 .doOnNext(carStatus -> this.currentCarStatus = carStatus)
                 .map(this::toJSON)
                 .map(session::textMessage));
     }
 
+    private Mono<Void> handleBinary(final WebSocketSession session) {
+        LOGGER.debug("Session with id '{}' uses the binary protocol.", session.getId());
+
+        // Setup message handler for receiving messages through the websocket; invalid controls are skipped
+        commandFanIn.connect(session.getId(), session.receive()
+                .map(message -> BinaryProtocol.readControl(message.getPayload()))
+                .filter(control -> {
+                    if (BinaryProtocol.isCarControl(control)) {
+                        return true;
+                    }
+                    commandFanIn.malformed(session.getId());
+                    return false;
+                })
+                .map(BinaryProtocol::toDriveCommand));
+
+        // Setup the flux to send messages over the websocket
+        return session.send(carStatusStreams.forSession(session.getId(), carStatusFlux)
+                .doOnNext(carStatus -> this.currentCarStatus = carStatus)
+                .map(carStatus -> session.binaryMessage(bufferFactory -> BinaryProtocol.encode(carStatus, bufferFactory))));
+    }
+
     private String toJSON(final CarStatus carStatus) {
         LOGGER.trace("Converting car status event to json.");
         try {
@@ -66,12 +103,14 @@ public class WebSocketCarControllerHandler implements WebSocketHandler {
         }
     }
 
-    private CarControlEvent toEvent(final String message) {
+    private CarControlEvent toEvent(final WebSocketSession session, final String message) {
         try {
             return objectMapper.readValue(message, CarControlEvent.class);
         } catch (final IOException mappingException) {
-            LOGGER.error("Failed to map car control message to event: {}", message, mappingException);
-            throw new RuntimeException(mappingException);
+            // Counted per session (see SessionsEndpoint); a misbehaving client must not flood the log
+            commandFanIn.malformed(session.getId());
+            LOGGER.debug("Skipping car control message that could not be mapped to an event: {}", message);
+            return null;
         }
     }
 }
@@ -0,0 +1,74 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
+import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameterSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller class for changing the computer vision parameters through websocket sent events, while the car is running. After connecting,
+ * and after every received event, the current parameters are sent back over the websocket.
+ */
+public class WebSocketComputerVisionControllerHandler implements WebSocketHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final ComputerVisionHelper computerVisionHelper;
+    private final ObjectMapper objectMapper;
+
+    public WebSocketComputerVisionControllerHandler(final ComputerVisionHelper computerVisionHelper, final ObjectMapper objectMapper) {
+        LOGGER.debug("Creating new {}", this.getClass().getSimpleName());
+
+        this.computerVisionHelper = computerVisionHelper;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> handle(final WebSocketSession session) {
+        LOGGER.debug("Connecting new session with id '{}' to the {}.", session.getId(), getClass().getSimpleName());
+
+        return session.send(session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .map(this::toEvent)
+                .map(this::updateParameter)
+                .startWith(computerVisionHelper.getParameters())
+                .map(this::toJSON)
+                .map(session::textMessage));
+    }
+
+    private ComputerVisionParameterSet updateParameter(final ComputerVisionParameterEvent event) {
+        try {
+            return computerVisionHelper.updateParameter(event.getParameter(), event.getValue());
+        } catch (final IllegalArgumentException e) {
+            LOGGER.warn("Rejected computer vision parameter event {}: {}", event, e.getMessage());
+            return computerVisionHelper.getParameters();
+        }
+    }
+
+    private String toJSON(final ComputerVisionParameterSet parameters) {
+        LOGGER.trace("Converting computer vision parameters to json.");
+        try {
+            return objectMapper.writeValueAsString(parameters.toMap());
+        } catch (final JsonProcessingException mappingException) {
+            LOGGER.error("Failed to map computer vision parameters to JSON: {}", parameters, mappingException);
+            throw new RuntimeException(mappingException);
+        }
+    }
+
+    private ComputerVisionParameterEvent toEvent(final String message) {
+        try {
+            return objectMapper.readValue(message, ComputerVisionParameterEvent.class);
+        } catch (final IOException mappingException) {
+            LOGGER.error("Failed to map computer vision parameter message to event: {}", message, mappingException);
+            throw new RuntimeException(mappingException);
+        }
+    }
+}
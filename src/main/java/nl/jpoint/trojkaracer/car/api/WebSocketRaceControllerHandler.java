@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
 import nl.jpoint.trojkaracer.car.application.RaceControlService;
 import nl.jpoint.trojkaracer.car.domain.race.RaceStatus;
 import org.slf4j.Logger;
@@ -15,7 +16,8 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
- * Controller class for controlling the race status through websocket sent events.
+ * Controller class for controlling the race status through websocket sent events. Clients that negotiate the {@link BinaryProtocol} exchange
+ * binary frames, all other clients exchange JSON text frames.
  */
 public class WebSocketRaceControllerHandler implements WebSocketHandler {
 
@@ -35,10 +37,19 @@ public class WebSocketRaceControllerHandler implements WebSocketHandler {
         this.raceStatusFlux = raceStatusFlux;
     }
 
+    @Override
+    public List<String> getSubProtocols() {
+        return BinaryProtocol.SUB_PROTOCOLS;
+    }
+
     @Override
     public Mono<Void> handle(final WebSocketSession session) {
         LOGGER.debug("Connecting new session with id '{}' to the {}.", session.getId(), getClass().getSimpleName());
 
+        if (BinaryProtocol.isNegotiated(session)) {
+            return handleBinary(session);
+        }
+
         // Setup message handler for receiving messages through the websocket
         session.receive()
                 .map(WebSocketMessage::getPayloadAsText)
@@ -51,6 +62,21 @@ public class WebSocketRaceControllerHandler implements WebSocketHandler {
                 .map(session::textMessage));
     }
 
+    private Mono<Void> handleBinary(final WebSocketSession session) {
+        LOGGER.debug("Session with id '{}' uses the binary protocol.", session.getId());
+
+        // Setup message handler for receiving messages through the websocket
+        session.receive()
+                .map(message -> BinaryProtocol.readControl(message.getPayload()))
+                .filter(BinaryProtocol::isRaceControl)
+                .map(control -> new RaceControlEvent(BinaryProtocol.toRaceControlType(control)))
+                .subscribe(new RaceControlMessageSubscriber(raceControlService));
+
+        // Setup the flux to send messages over the websocket
+        return session.send(raceStatusFlux
+                .map(raceStatus -> session.binaryMessage(bufferFactory -> BinaryProtocol.encode(raceStatus, bufferFactory))));
+    }
+
     private String toJSON(final RaceStatus raceStatus) {
         LOGGER.trace("Converting race status event to json.");
         try {
@@ -0,0 +1,35 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.telemetry.FrameTelemetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller class for following the {@link FrameTelemetry} through a websocket; every binary message holds a single delta encoded record
+ * (see {@link nl.jpoint.trojkaracer.car.domain.telemetry.TelemetryEncoder}). The telemetry is only collected while at least one session is
+ * connected.
+ */
+public class WebSocketTelemetryHandler implements WebSocketHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final FrameTelemetry frameTelemetry;
+
+    public WebSocketTelemetryHandler(final FrameTelemetry frameTelemetry) {
+        LOGGER.debug("Creating new {}", this.getClass().getSimpleName());
+
+        this.frameTelemetry = frameTelemetry;
+    }
+
+    @Override
+    public Mono<Void> handle(final WebSocketSession session) {
+        LOGGER.debug("Connecting new session with id '{}' to the {}.", session.getId(), getClass().getSimpleName());
+
+        return session.send(frameTelemetry.getEncodedRecords()
+                .map(record -> session.binaryMessage(bufferFactory -> bufferFactory.wrap(record))));
+    }
+}
@@ -0,0 +1,34 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.computervision.LiveVideo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller class for watching the {@link LiveVideo} through a websocket; every binary message holds a single JPEG image. The video is only
+ * encoded while at least one session is connected.
+ */
+public class WebSocketVideoHandler implements WebSocketHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final LiveVideo liveVideo;
+
+    public WebSocketVideoHandler(final LiveVideo liveVideo) {
+        LOGGER.debug("Creating new {}", this.getClass().getSimpleName());
+
+        this.liveVideo = liveVideo;
+    }
+
+    @Override
+    public Mono<Void> handle(final WebSocketSession session) {
+        LOGGER.debug("Connecting new session with id '{}' to the {}.", session.getId(), getClass().getSimpleName());
+
+        return session.send(liveVideo.getImages()
+                .map(image -> session.binaryMessage(bufferFactory -> bufferFactory.wrap(image))));
+    }
+}
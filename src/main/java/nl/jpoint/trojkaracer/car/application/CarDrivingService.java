@@ -4,6 +4,9 @@ import java.lang.invoke.MethodHandles;
 import nl.jpoint.trojkaracer.car.domain.car.Car;
 import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
 import nl.jpoint.trojkaracer.car.domain.driver.DriveCommand;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
+import nl.jpoint.trojkaracer.car.domain.telemetry.FrameTelemetry;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
@@ -24,6 +27,8 @@ public class CarDrivingService {
 
     private final Car car;
     private final Subscriber<CarStatus> carStatusSubscriber;
+    private final PipelineMetrics pipelineMetrics;
+    private final FrameTelemetry frameTelemetry;
 
     private BaseSubscriber<DriveCommand> driver;
     private Subscription activeSubscription;
@@ -32,12 +37,19 @@ public class CarDrivingService {
      * Creates and initializes the Car driving service.
      * @param car the car this car driving service controls.
      * @param carStatusSubscriber the subscriber to which new car status will need to be send.
+     * @param pipelineMetrics the metrics to record the duration of applying the drive commands in.
+     * @param frameTelemetry the telemetry to record the applied drive commands in.
      */
-    public CarDrivingService(final Car car, final Subscriber<CarStatus> carStatusSubscriber) {
+    public CarDrivingService(final Car car,
+                             final Subscriber<CarStatus> carStatusSubscriber,
+                             final PipelineMetrics pipelineMetrics,
+                             final FrameTelemetry frameTelemetry) {
         LOGGER.info("Creating and initializing Car Driving Service...");
 
         this.car = car;
         this.carStatusSubscriber = carStatusSubscriber;
+        this.pipelineMetrics = pipelineMetrics;
+        this.frameTelemetry = frameTelemetry;
     }
 
     public CarStatus getCarStatus() {
@@ -66,8 +78,15 @@ public class CarDrivingService {
     }
 
     private void processDriveCommand(final DriveCommand driveCommand) {
+        final long start = System.nanoTime();
         driveCommand.applyCommandOnCar(car);
-        publishCarStatus();
+        final long driveNanos = pipelineMetrics.recordSince(Stage.DRIVE_COMMAND, start) - start;
+        final CarStatus carStatus = getCarStatus();
+        carStatusSubscriber.onNext(carStatus);
+
+        if (frameTelemetry.isActive()) {
+            frameTelemetry.applied(driveCommand.getCaptureTimestamp(), carStatus, driveNanos);
+        }
     }
 
     private BaseSubscriber<DriveCommand> buildDriver() {
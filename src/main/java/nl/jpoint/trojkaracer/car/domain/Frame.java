@@ -0,0 +1,99 @@
+package nl.jpoint.trojkaracer.car.domain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.Getter;
+import org.opencv.core.Mat;
+
+/**
+ * A single captured view, stamped with a monotonically increasing sequence number and the moment it was captured.
+ * <p>The image of a frame is reference counted, so its native buffer is released (or reused by the view retriever for a next frame) as soon
+ * as the last consumer is done with it, instead of whenever the garbage collector gets to it. A frame is created with a single reference,
+ * owned by its creator. Frames are delivered with a reference that is released right after the delivery, so a consumer that uses a frame
+ * after it was delivered to it (later, or on another thread) has to {@link #retain()} it and {@link #release()} it when it is done with it.
+ * The image must not be used once the last reference was released.</p>
+ */
+public final class Frame {
+
+    /**
+     * Sequence number of the frame; every captured frame gets a number that is higher than that of the frame captured before it.
+     */
+    @Getter
+    private final long sequenceNumber;
+
+    /**
+     * The moment the frame was captured, as returned by {@link System#nanoTime()}.
+     */
+    @Getter
+    private final long captureTimestamp;
+
+    @Getter
+    private final Mat image;
+
+    private final Consumer<Mat> recycler;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private Frame(final long sequenceNumber, final long captureTimestamp, final Mat image, final Consumer<Mat> recycler) {
+        this.sequenceNumber = sequenceNumber;
+        this.captureTimestamp = captureTimestamp;
+        this.image = image;
+        this.recycler = recycler;
+    }
+
+    /**
+     * Creates a frame with a single reference; the image is released when the last reference is released.
+     * @param sequenceNumber the sequence number of the frame.
+     * @param captureTimestamp the moment the frame was captured, as returned by {@link System#nanoTime()}.
+     * @param image the image of the frame.
+     * @return the frame.
+     */
+    public static Frame of(final long sequenceNumber, final long captureTimestamp, final Mat image) {
+        return new Frame(sequenceNumber, captureTimestamp, image, Mat::release);
+    }
+
+    /**
+     * Creates a frame with a single reference; the image is handed to the recycler when the last reference is released, so its buffer can be
+     * reused for another frame.
+     * @param sequenceNumber the sequence number of the frame.
+     * @param captureTimestamp the moment the frame was captured, as returned by {@link System#nanoTime()}.
+     * @param image the image of the frame.
+     * @param recycler the recycler of the image.
+     * @return the frame.
+     */
+    public static Frame of(final long sequenceNumber, final long captureTimestamp, final Mat image, final Consumer<Mat> recycler) {
+        return new Frame(sequenceNumber, captureTimestamp, image, recycler);
+    }
+
+    /**
+     * Takes an additional reference to the frame, unless its last reference was released already.
+     * @return whether a reference was taken; when it was not, the frame must not be used.
+     */
+    public boolean retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases a reference to the frame; when it was the last one, the image is released (or recycled).
+     * @throws IllegalStateException in case the frame was released more often than it was retained.
+     */
+    public void release() {
+        final int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            recycler.accept(image);
+        } else if (remaining < 0) {
+            throw new IllegalStateException(String.format("Frame %s was released more often than it was retained", sequenceNumber));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Frame(sequenceNumber=%s, captureTimestamp=%s)", sequenceNumber, captureTimestamp);
+    }
+}
@@ -0,0 +1,125 @@
+package nl.jpoint.trojkaracer.car.domain;
+
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Hot, shared source of {@link Frame}s. The frames are pushed by the {@link ViewRetriever} as soon as they are captured, no matter how many
+ * consumers are subscribed, and every consumer receives the very same frame. Consumers that can not keep up only get the latest frame; older
+ * frames are dropped for that consumer without slowing down the capture or the other consumers.
+ * <p>The bus is only subscribed to the view retriever while at least one consumer is subscribed. The rate of the frames is determined by the
+ * view retriever, and can be changed while the bus is running (see {@link FrameRateGovernor}). A demand driven view retriever (see
+ * {@link ViewRetriever#isDemandDriven()}) is pulled instead: the next frame is only read once every consumer is ready for it, so no frame
+ * is dropped and the slowest consumer sets the pace.</p>
+ * <p>Every consumer holds a reference of its own to the frames on their way to it (see {@link Frame#retain()}). The bus releases that
+ * reference when the frame is dropped for the consumer, and right after the frame was delivered to the consumer: a consumer that uses a
+ * frame after its delivery has to retain it itself. Frames still on their way to a consumer that cancels its subscription are left to the
+ * garbage collector.</p>
+ */
+public class FrameBus {
+
+    private final Flux<Frame> sharedFrames;
+    private final Scheduler consumerScheduler;
+    private final boolean demandDriven;
+
+    /**
+     * Creates a new frame bus that publishes the frames of the given view retriever.
+     * @param viewRetriever the view retriever to publish the frames of.
+     */
+    public FrameBus(final ViewRetriever viewRetriever) {
+        this(viewRetriever, Schedulers.parallel(), PipelineMetrics.noop());
+    }
+
+    /**
+     * Creates a new frame bus that publishes the frames of the given view retriever.
+     * @param viewRetriever the view retriever to publish the frames of.
+     * @param consumerScheduler the scheduler on which the consumers receive their frames.
+     * @param pipelineMetrics the metrics to record the duration from the capture of a frame until it is published on the bus in.
+     */
+    public FrameBus(final ViewRetriever viewRetriever, final Scheduler consumerScheduler, final PipelineMetrics pipelineMetrics) {
+        this.consumerScheduler = consumerScheduler;
+        this.demandDriven = viewRetriever.isDemandDriven();
+        final Flux<Frame> frames = viewRetriever.getFrames()
+                .doOnNext(frame -> pipelineMetrics.recordSince(Stage.CAPTURE, frame.getCaptureTimestamp()));
+        // A demand driven view retriever is only asked for the next frame once the previous one was delivered to every consumer
+        this.sharedFrames = (demandDriven ? frames.publish(1) : frames.publish()).refCount();
+    }
+
+    /**
+     * Returns the flux of frames for a single consumer. Every subscription receives its frames on a worker of its own and only receives the
+     * latest frame when it is not able to keep up with the bus, unless the view retriever is demand driven. A frame is only valid during its
+     * delivery, unless the consumer retains it.
+     * @return the flux of frames.
+     */
+    public Flux<Frame> getFrames() {
+        final Flux<Frame> retainedFrames = sharedFrames.handle((frame, sink) -> {
+            // The frame may have been released by its source already, when it was delivered late
+            if (frame.retain()) {
+                sink.next(frame);
+            }
+        });
+        final Flux<Frame> frames = (demandDriven
+                ? retainedFrames
+                : retainedFrames.onBackpressureBuffer(1, Frame::release, BufferOverflowStrategy.DROP_OLDEST))
+                .publishOn(consumerScheduler, 1);
+        final Publisher<Frame> releasedFrames = consumer -> frames.subscribe(new ReleasingSubscriber(consumer));
+        return Flux.from(releasedFrames);
+    }
+
+    /**
+     * Delivers the frames to a consumer and releases every frame right after its delivery.
+     */
+    private static final class ReleasingSubscriber implements CoreSubscriber<Frame>, Subscription {
+
+        private final Subscriber<? super Frame> consumer;
+        private Subscription subscription;
+
+        private ReleasingSubscriber(final Subscriber<? super Frame> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            subscription = s;
+            // Not the upstream subscription itself, so the consumer can not fuse with it and take frames without them being released
+            consumer.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(final Frame frame) {
+            try {
+                consumer.onNext(frame);
+            } finally {
+                frame.release();
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            consumer.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            consumer.onComplete();
+        }
+
+        @Override
+        public void request(final long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nl.jpoint.trojkaracer.car.domain;
+
+import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
+import nl.jpoint.trojkaracer.car.domain.race.RaceStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Adapts the frame rate of the {@link ViewRetriever} (and so of the {@link FrameBus}) to the race status and the speed of the car, so the car
+ * does not spend CPU (and heat) on frames nobody needs during the long idle periods between heats:
+ * <ul>
+ *     <li>while driving manually or while the race is paused, frames are only published at the idle rate;</li>
+ *     <li>while awaiting the start signal, frames are published at the start signal rate (normally the frame rate of the camera), to react to
+ *     the start signal as fast as possible;</li>
+ *     <li>while racing, the rate scales linearly with the speed of the car, from the minimum racing rate when standing still to the maximum
+ *     rate at full speed.</li>
+ * </ul>
+ * <p>The rates are changed on the running view retriever, without restarting the stream of frames.</p>
+ */
+public class FrameRateGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final int MAX_SPEED_PERCENTAGE = 100;
+
+    private final ViewRetriever viewRetriever;
+    private final int idleFramesPerSecond;
+    private final int minRacingFramesPerSecond;
+    private final int maxFramesPerSecond;
+    private final int startSignalFramesPerSecond;
+    private final Disposable subscription;
+
+    /**
+     * Creates a new governor and starts following the race status and car status.
+     * @param viewRetriever the view retriever to govern the frame rate of.
+     * @param raceStatusFlux the flux of race status changes.
+     * @param carStatusFlux the flux of car status changes.
+     * @param idleFramesPerSecond the frame rate while not racing.
+     * @param minRacingFramesPerSecond the frame rate while racing, standing still.
+     * @param maxFramesPerSecond the frame rate while racing at full speed.
+     * @param startSignalFramesPerSecond the frame rate while awaiting the start signal.
+     */
+    public FrameRateGovernor(final ViewRetriever viewRetriever,
+                             final Flux<RaceStatus> raceStatusFlux,
+                             final Flux<CarStatus> carStatusFlux,
+                             final int idleFramesPerSecond,
+                             final int minRacingFramesPerSecond,
+                             final int maxFramesPerSecond,
+                             final int startSignalFramesPerSecond) {
+        if (idleFramesPerSecond < 1 || minRacingFramesPerSecond < idleFramesPerSecond || maxFramesPerSecond < minRacingFramesPerSecond
+                || startSignalFramesPerSecond < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "The frame rates must be positive and increasing (idle: %s, minRacing: %s, max: %s, startSignal: %s)",
+                    idleFramesPerSecond, minRacingFramesPerSecond, maxFramesPerSecond, startSignalFramesPerSecond));
+        }
+
+        this.viewRetriever = viewRetriever;
+        this.idleFramesPerSecond = idleFramesPerSecond;
+        this.minRacingFramesPerSecond = minRacingFramesPerSecond;
+        this.maxFramesPerSecond = maxFramesPerSecond;
+        this.startSignalFramesPerSecond = startSignalFramesPerSecond;
+
+        final Flux<Integer> speedPercentages = carStatusFlux
+                .map(carStatus -> Math.abs(carStatus.getSpeed().getSpeedAsPercentage()))
+                .startWith(0);
+        this.subscription = Flux.combineLatest(raceStatusFlux, speedPercentages, this::determineFrameRate)
+                .distinctUntilChanged()
+                .subscribe(this::applyFrameRate, e -> LOGGER.error("Stopped governing the frame rate.", e));
+    }
+
+    public void stop() {
+        subscription.dispose();
+    }
+
+    /**
+     * Determines the frame rate for the given race status and speed.
+     * @param raceStatus the current race status.
+     * @param speedPercentage the current (absolute) speed of the car, as a percentage of its maximum speed.
+     * @return the frame rate.
+     */
+    int determineFrameRate(final RaceStatus raceStatus, final int speedPercentage) {
+        switch (raceStatus) {
+            case AWAITING_START_SIGNAL:
+                return startSignalFramesPerSecond;
+            case RACING:
+                return minRacingFramesPerSecond
+                        + (maxFramesPerSecond - minRacingFramesPerSecond) * Math.min(speedPercentage, MAX_SPEED_PERCENTAGE) / MAX_SPEED_PERCENTAGE;
+            default:
+                return idleFramesPerSecond;
+        }
+    }
+
+    private void applyFrameRate(final int framesPerSecond) {
+        LOGGER.info("Changing the frame rate to {} frames per second.", framesPerSecond);
+        viewRetriever.setMaxFramesPerSecond(framesPerSecond);
+    }
+}
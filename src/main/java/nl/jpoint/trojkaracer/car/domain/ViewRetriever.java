@@ -1,16 +1,45 @@
 package nl.jpoint.trojkaracer.car.domain;
 
 import org.opencv.core.Mat;
+import reactor.core.publisher.Flux;
 
 /**
- * Interface for retrieving a single View.
+ * Interface for retrieving the views of the car.
  */
 public interface ViewRetriever {
 
     /**
-     * Retrieves a view and returns that view.
+     * Returns the views as {@link Frame}s, stamped with a sequence number and the moment they were captured. The frames are pushed as soon as
+     * they are captured, at the rate of the view retriever: frames are dropped for subscribers that have no demand for them. A demand driven
+     * view retriever (see {@link #isDemandDriven()}) instead only reads a view when it is requested, and never drops one.
+     * <p>A frame is only valid while it is being delivered; a subscriber that uses a frame after its delivery has to retain it (see
+     * {@link Frame#retain()}).</p>
+     * @return the captured frames.
+     */
+    Flux<Frame> getFrames();
+
+    /**
+     * Retrieves a view and returns that view; waits for the next view to be captured. The view is a copy, owned by the caller.
      * @return a view and returns that view.
      */
-    Mat getView();
+    default Mat getView() {
+        return getFrames().map(frame -> frame.getImage().clone()).next().block();
+    }
+
+    /**
+     * Returns whether the views are read on demand instead of at a rate of their own, like a recording that is replayed as fast as possible.
+     * The frames of a demand driven view retriever are not dropped, so their consumers set the pace.
+     * @return whether the views are read on demand.
+     */
+    default boolean isDemandDriven() {
+        return false;
+    }
+
+    /**
+     * Limits the rate at which the views are published, for view retrievers that capture continuously; ignored by all others.
+     * @param maxFramesPerSecond the maximum number of views to publish per second, or 0 to publish every captured view.
+     */
+    default void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+    }
 
 }
@@ -1,12 +1,20 @@
 package nl.jpoint.trojkaracer.car.domain.car;
 
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
  * General car class that provides methods to a driver to set the speed and steering direction.
+ * <p>The car is driven concurrently (by the manual driver, the automated driver and the race control), so its state (the speed, the
+ * direction and a stop epoch) is packed into a single <code>long</code> that is only changed with compare-and-set transitions. Readers always
+ * see a consistent speed and direction pair, and writers never block each other. Every stop increments the epoch, so a drive that started
+ * before a concurrent stop never overrides it: its transition fails and it is dropped. After writing to the engine, every writer checks
+ * whether the state changed in the mean time and writes again if so, so the engine always ends up with the latest state.</p>
  */
 @Component("car")
 public class Car {
@@ -14,46 +22,84 @@ public class Car {
     private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private static final int SPEED_STEP = 2;
     private static final int STEERING_STEP = 2;
+    private static final long SPEED_AND_DIRECTION_MASK = 0xFFFFFFFFL;
 
     private final CarEngine carEngine;
+    private final PipelineMetrics pipelineMetrics;
 
-    private Direction direction;
-    private Speed speed;
+    // The packed state: the stop epoch in the upper 32 bits, the speed and the direction in 16 bits each below that
+    private final AtomicLong state = new AtomicLong(pack(0, 0, 0));
+    private final Runnable beforeDriveTransition;
 
-    public Car(final CarEngine carEngine) {
+    public Car(final CarEngine carEngine, final PipelineMetrics pipelineMetrics) {
+        this(carEngine, pipelineMetrics, () -> { });
+    }
+
+    /**
+     * Creates a car that runs the given hook right before a drive commits its transition; used by the tests to interleave a concurrent stop.
+     */
+    Car(final CarEngine carEngine, final PipelineMetrics pipelineMetrics, final Runnable beforeDriveTransition) {
         LOGGER.info("Creating and initializing the Trojka Racer Car...", this.getClass().getSimpleName());
 
         // Initialize the car state
         this.carEngine = carEngine;
-        this.speed = new Speed(0);
-        this.direction = new Direction(0);
+        this.pipelineMetrics = pipelineMetrics;
+        this.beforeDriveTransition = beforeDriveTransition;
 
         // Apply car state to hardware
-        updateEngineSpeed();
-        updateEngineSteeringDirection();
+        updateEngine(state.get());
     }
 
     public void drive(final Speed newSpeed, final Direction newDirection) {
+        drive(newSpeed, newDirection, PipelineMetrics.NO_TIMESTAMP);
+    }
+
+    /**
+     * Drives the car at the new speed in the new direction, and records the glass-to-wheel latency once both have been written to the engine.
+     * When the car is stopped while this drive is being applied, the stop wins and the drive is dropped. Driving at speed 0 in direction 0
+     * stops the car (see {@link #stop()}).
+     * @param newSpeed the new speed.
+     * @param newDirection the new direction.
+     * @param captureTimestamp the capture timestamp of the frame the speed and direction are based on, or
+     *                         {@link PipelineMetrics#NO_TIMESTAMP} when they are not based on a frame.
+     */
+    public void drive(final Speed newSpeed, final Direction newDirection, final long captureTimestamp) {
         if (newSpeed.getSpeedValue() == 0 && newDirection.getDegrees() == 0) {
             stop();
-        } else {
-            if (allowedChange(newSpeed, newDirection)) {
-                speed = newSpeed;
-                direction = newDirection;
-            } else {
+            pipelineMetrics.recordGlassToWheel(captureTimestamp);
+            return;
+        }
+
+        final int epoch = epochOf(state.get());
+
+        long current;
+        long next;
+        do {
+            current = state.get();
+            if (epochOf(current) != epoch) {
+                LOGGER.trace("Dropping a drive command that was overtaken by a stop.");
+                return;
+            }
+
+            if (!allowedChange(current, newSpeed, newDirection)) {
                 LOGGER.warn("Received a speed ('{}') and direction ('{}') that is not allowed to apply to the car with the current speed ('{}') and direction " +
-                        "('{}').", newSpeed.getSpeedValue(), newDirection.getDegrees(), speed.getSpeedValue(), direction.getDegrees());
+                        "('{}').", newSpeed.getSpeedValue(), newDirection.getDegrees(), speedOf(current), directionOf(current));
                 LOGGER.warn("Stopping the car.");
                 stop();
+                return;
             }
-        }
-        updateEngineSpeed();
-        updateEngineSteeringDirection();
+            next = pack(epoch, newSpeed.getSpeedValue(), newDirection.getDegrees());
+            beforeDriveTransition.run();
+        } while (!state.compareAndSet(current, next));
+
+        updateEngine(next);
+        pipelineMetrics.recordGlassToWheel(captureTimestamp);
     }
 
-    private boolean allowedChange(final Speed newSpeed, final Direction newDirection) {
-        return (newSpeed.getSpeedValue() <= 0 && speed.getSpeedValue() <= 0 || newSpeed.getSpeedValue() >= 0 && speed.getSpeedValue() >= 0) &&
-                Math.abs(newDirection.getDegrees() - direction.getDegrees()) <= Direction.MAX_DEGREES;
+    private static boolean allowedChange(final long current, final Speed newSpeed, final Direction newDirection) {
+        final int speed = speedOf(current);
+        return (newSpeed.getSpeedValue() <= 0 && speed <= 0 || newSpeed.getSpeedValue() >= 0 && speed >= 0) &&
+                Math.abs(newDirection.getDegrees() - directionOf(current)) <= Direction.MAX_DEGREES;
     }
 
     /**
@@ -62,8 +108,8 @@ public class Car {
      * <p>If the car is already at its maximum speed, increasing the speed will do nothing.</p>
      */
     public void increaseSpeed() {
-        speed = speed.increase(SPEED_STEP);
-        updateEngineSpeed();
+        updateEngine(state.updateAndGet(current ->
+                withSpeed(current, new Speed(speedOf(current)).increase(SPEED_STEP).getSpeedValue())));
     }
 
     /**
@@ -72,39 +118,43 @@ public class Car {
      * <p>If the car is already at its minimum speed, decreasomg the speed will do nothing.</p>
      */
     public void decreaseSpeed() {
-        speed = speed.decrease(SPEED_STEP);
-        updateEngineSpeed();
+        updateEngine(state.updateAndGet(current ->
+                withSpeed(current, new Speed(speedOf(current)).decrease(SPEED_STEP).getSpeedValue())));
     }
 
     public void steerLeft() {
-        direction = direction.steerLeft(STEERING_STEP);
-        updateEngineSteeringDirection();
+        updateEngine(state.updateAndGet(current ->
+                withDirection(current, new Direction(directionOf(current)).steerLeft(STEERING_STEP).getDegrees())));
     }
 
     public void steerRight() {
-        direction = direction.steerRight(STEERING_STEP);
-        updateEngineSteeringDirection();
+        updateEngine(state.updateAndGet(current ->
+                withDirection(current, new Direction(directionOf(current)).steerRight(STEERING_STEP).getDegrees())));
     }
 
     /**
-     * Stops the car by immediately setting the speed to 0, placing the steering wheel in its neutral position and shifting to neutral.
+     * Stops the car by immediately setting the speed to 0, placing the steering wheel in its neutral position and shifting to neutral. A stop
+     * always wins over drives that are applied at the same time.
      */
     public void stop() {
-        speed = new Speed(0);
-        direction = new Direction(0);
-
-        updateEngineSpeed();
-        updateEngineSteeringDirection();
+        updateEngine(state.updateAndGet(current -> pack(epochOf(current) + 1, 0, 0)));
     }
 
-    private void updateEngineSpeed() {
-        LOGGER.debug("Updating car engine speed: {}", speed);
-        carEngine.updateMotor(speed);
-    }
-
-    private void updateEngineSteeringDirection() {
-        LOGGER.debug("Updating car engine steering direction: {}", direction);
-        carEngine.updateDirection(direction);
+    /**
+     * Writes the speed and direction of the given state to the engine, and writes again as long as the state changed while writing, so the
+     * engine always ends up with the latest state, whichever writer finishes last.
+     */
+    private void updateEngine(final long newState) {
+        long current = newState;
+        long written;
+        do {
+            written = current;
+            LOGGER.trace("Updating car engine speed and steering direction: {}, {}", speedOf(written), directionOf(written));
+            final long start = System.nanoTime();
+            carEngine.update(new Speed(speedOf(written)), new Direction(directionOf(written)));
+            pipelineMetrics.recordSince(Stage.ENGINE_UPDATE, start);
+            current = state.get();
+        } while ((current & SPEED_AND_DIRECTION_MASK) != (written & SPEED_AND_DIRECTION_MASK));
     }
 
     /**
@@ -112,9 +162,34 @@ public class Car {
      * @return the status of the car, including information regarding speed and steering direction.
      */
     public CarStatus getStatus() {
+        final long current = state.get();
         return CarStatus.builder()
-                .speed(this.speed)
-                .direction(this.direction)
+                .speed(new Speed(speedOf(current)))
+                .direction(new Direction(directionOf(current)))
                 .build();
     }
+
+    static long pack(final int epoch, final int speed, final int direction) {
+        return (long) epoch << 32 | (speed & 0xFFFFL) << 16 | direction & 0xFFFFL;
+    }
+
+    static int epochOf(final long state) {
+        return (int) (state >>> 32);
+    }
+
+    static int speedOf(final long state) {
+        return (short) (state >>> 16);
+    }
+
+    static int directionOf(final long state) {
+        return (short) state;
+    }
+
+    private static long withSpeed(final long state, final int speed) {
+        return pack(epochOf(state), speed, directionOf(state));
+    }
+
+    private static long withDirection(final long state, final int direction) {
+        return pack(epochOf(state), speedOf(state), direction);
+    }
 }
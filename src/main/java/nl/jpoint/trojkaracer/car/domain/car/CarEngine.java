@@ -18,4 +18,15 @@ public interface CarEngine {
      */
     void updateDirection(final Direction direction);
 
+    /**
+     * Updates the speed and the steering direction in a single operation. Implementations that write to hardware should apply both values
+     * atomically and skip the writes of values that did not change.
+     * @param speed the speed to set.
+     * @param direction the direction (in degrees) to set.
+     */
+    default void update(final Speed speed, final Direction direction) {
+        updateMotor(speed);
+        updateDirection(direction);
+    }
+
 }
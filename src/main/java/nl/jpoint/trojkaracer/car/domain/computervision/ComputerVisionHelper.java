@@ -1,40 +1,19 @@
 package nl.jpoint.trojkaracer.car.domain.computervision;
 
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.BLUR_SIZE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.CANNY_APERTURE_SIZE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.CANNY_GRADIENT;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.CANNY_THRESHOLD1;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.CANNY_THRESHOLD2;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.DETECT_LINE_SLOPE_MAX;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.DETECT_LINE_SLOPE_MIN;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.DRAW_LINE_COLOR;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.DRAW_LINE_THICKNESS;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.HOUGH_MAX_GAP_SIZE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.HOUGH_MIN_LINE_LENGTH;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.HOUGH_RHO;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.HOUGH_THETA;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.HOUGH_THRESHOLD;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.LANE_LINE_COLOR_LOWER;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.LANE_LINE_COLOR_UPPER;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.LANE_LINE_GRAY_LOWER;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.LANE_LINE_GRAY_UPPER;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.ROI_X_OFFSET_PERCENTAGE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.ROI_Y_BOTTOM_PERCENTAGE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.ROI_Y_MIDDLE_PERCENTAGE;
-import static nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionParameters.ROI_Y_TOP_PERCENTAGE;
-
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.Point;
+import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
@@ -49,46 +28,53 @@ import org.slf4j.LoggerFactory;
 public class ComputerVisionHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final Size SIZE_FROM_SCALE_FACTORS = new Size(0, 0);
+    private static final Scalar BLACK = new Scalar(0);
+    private static final Scalar WHITE = new Scalar(255);
 
     private final String imageStoragePath;
-    private final Map<ComputerVisionParameters, Object> parameters =
-            Collections.synchronizedMap((Map<ComputerVisionParameters, Object>) new EnumMap(ComputerVisionParameters.class));
+    private final PipelineMetrics pipelineMetrics;
+    private final AtomicReference<ComputerVisionParameterSet> parameters = new AtomicReference<>(ComputerVisionParameterSet.defaults());
 
     /**
      * Creates a new instance with all the default parameters set.
      * @param imageStoragePath the path to which images are written.
      */
     public ComputerVisionHelper(final String imageStoragePath) {
-        this.imageStoragePath = imageStoragePath;
-
-        parameters.put(CANNY_THRESHOLD1, 50);
-        parameters.put(CANNY_THRESHOLD2, 180);
-        parameters.put(CANNY_APERTURE_SIZE, 3);
-        parameters.put(CANNY_GRADIENT, false);
-
-        parameters.put(BLUR_SIZE, 5);
-
-        parameters.put(HOUGH_RHO, 2d);
-        parameters.put(HOUGH_THETA, Math.PI / 180);
-        parameters.put(HOUGH_THRESHOLD, 1);
-        parameters.put(HOUGH_MIN_LINE_LENGTH, 15);
-        parameters.put(HOUGH_MAX_GAP_SIZE, 5);
+        this(imageStoragePath, PipelineMetrics.noop());
+    }
 
-        parameters.put(DETECT_LINE_SLOPE_MIN, 0.2);
-        parameters.put(DETECT_LINE_SLOPE_MAX, 15d);
+    /**
+     * Creates a new instance with all the default parameters set, that records the duration of the lane detection stages.
+     * @param imageStoragePath the path to which images are written.
+     * @param pipelineMetrics the metrics to record the duration of the lane detection stages in.
+     */
+    public ComputerVisionHelper(final String imageStoragePath, final PipelineMetrics pipelineMetrics) {
+        this.imageStoragePath = imageStoragePath;
+        this.pipelineMetrics = pipelineMetrics;
+    }
 
-        parameters.put(DRAW_LINE_COLOR, new Scalar(0, 0, 255));
-        parameters.put(DRAW_LINE_THICKNESS, 3);
+    /**
+     * Returns the current snapshot of the computer vision parameters.
+     * @return the current snapshot of the computer vision parameters.
+     */
+    public ComputerVisionParameterSet getParameters() {
+        return parameters.get();
+    }
 
-        parameters.put(LANE_LINE_GRAY_LOWER, new Scalar(200));
-        parameters.put(LANE_LINE_GRAY_UPPER, new Scalar(255));
-        parameters.put(LANE_LINE_COLOR_LOWER, new Scalar(100, 5, 75));
-        parameters.put(LANE_LINE_COLOR_UPPER, new Scalar(180, 30, 250));
+    /**
+     * Changes a single computer vision parameter. The change is applied atomically by replacing the parameter snapshot; frames that are
+     * already being processed keep using the snapshot they started with.
+     * @param parameter the parameter to change.
+     * @param value the new value of the parameter.
+     * @return the new snapshot of the computer vision parameters.
+     * @throws IllegalArgumentException in case the value can not be converted to the type of the parameter.
+     */
+    public ComputerVisionParameterSet updateParameter(final ComputerVisionParameters parameter, final Object value) {
+        final ComputerVisionParameterSet updatedParameters = parameters.updateAndGet(current -> current.with(parameter, value));
+        LOGGER.info("Changed computer vision parameter {} to {}.", parameter, value);
 
-        parameters.put(ROI_X_OFFSET_PERCENTAGE, 0.15d);
-        parameters.put(ROI_Y_TOP_PERCENTAGE, 0.50d);
-        parameters.put(ROI_Y_MIDDLE_PERCENTAGE, 0.85d);
-        parameters.put(ROI_Y_BOTTOM_PERCENTAGE, 1d);
+        return updatedParameters;
     }
 
     /**
@@ -99,40 +85,263 @@ public class ComputerVisionHelper {
     public Mat addLanesToImage(final Mat image) {
         final List<Line> laneLines = getLaneLines(image);
 
+        final ComputerVisionParameterSet currentParameters = parameters.get();
         filterLines(laneLines)
-                .forEach(line -> line.draw(image, (Scalar) parameters.get(DRAW_LINE_COLOR), (Integer) parameters.get(DRAW_LINE_THICKNESS)));
+                .forEach(line -> line.draw(image, currentParameters.getDrawLineColor(), currentParameters.getDrawLineThickness()));
         return image;
     }
 
     /**
      * This function take as input a color image and tries to infer the lane lines in the image.
+     * <p>All intermediate images are released before returning; pipelines that process a stream of frames should use
+     * {@link #getLaneLines(Mat, LaneDetectionWorkspace)} with a workspace of their own instead.</p>
      *
      * @param image input frame/image.
      * @return list of lane lines.
      */
     public List<Line> getLaneLines(final Mat image) {
-        final Mat roiMask = getRegionOfInterestMask(image, Collections.singletonList(new MatOfPoint(getROIPoints(image.size()))));
-        final Mat imageOfInterest = applyMask(image, roiMask);
-
-        final Mat grayImage = convertBGRToGrayScale(imageOfInterest);
-        final Mat blurImage = removeNoise(grayImage);
-        final Mat edgeImage = cannyEdgeDetection(blurImage);
+        final LaneDetectionWorkspace workspace = new LaneDetectionWorkspace();
+        try {
+            return getLaneLines(image, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
 
-        final Mat detectedLinesMatrix = houghLines(edgeImage);
+    /**
+     * This function take as input a color (or grayscale) image and tries to infer the lane lines in the image. All intermediate images are
+     * written into the buffers of the provided workspace, so no native memory is allocated as long as the frame size does not change.
+     * <p>The lines are only detected within the bounds of the region of interest and, when a processing scale is set, in a scaled copy of
+     * the image, but they are returned in the coordinates of the image itself.</p>
+     *
+     * @param image input frame/image.
+     * @param workspace the workspace holding the (reusable) buffers for the intermediate images.
+     * @return list of lane lines.
+     */
+    public List<Line> getLaneLines(final Mat image, final LaneDetectionWorkspace workspace) {
+        blurLaneImage(image, workspace, parameters.get());
+        detectEdges(workspace);
+        final Mat detectedLinesMatrix = detectLines(workspace);
+        final double scale = workspace.parameters.getProcessingScale();
+        final Rect roiBounds = workspace.regionOfInterestMask.getBounds();
 
         final List<Line> detectedLines = new ArrayList<>(detectedLinesMatrix.rows());
         for (int i = 0; i < detectedLinesMatrix.rows(); i++) {
             double[] val = detectedLinesMatrix.get(i, 0);
-            detectedLines.add(new Line(val[0], val[1], val[2], val[3]));
+            detectedLines.add(new Line((val[0] + roiBounds.x) / scale, (val[1] + roiBounds.y) / scale,
+                    (val[2] + roiBounds.x) / scale, (val[3] + roiBounds.y) / scale));
         }
 
         return detectedLines;
     }
 
+    /**
+     * Detects the lane line segments in the image and stores the ones with a slope within the configured boundaries in the segments of the
+     * workspace. Unlike {@link #getLaneLines(Mat, LaneDetectionWorkspace)} this method does not allocate any objects per frame: the detected
+     * lines are copied out of the native matrix in a single bulk copy into a reused primitive array.
+     *
+     * @param image input frame/image.
+     * @param workspace the workspace holding the (reusable) buffers for the intermediate images and the detected segments.
+     * @return the detected segments (the segments of the workspace).
+     */
+    public LaneSegments detectLaneSegments(final Mat image, final LaneDetectionWorkspace workspace) {
+        blurLaneImage(image, workspace, parameters.get());
+        detectEdges(workspace);
+        return detectLaneSegments(workspace);
+    }
+
+    /**
+     * Detects the lane line segments in the image, like {@link #detectLaneSegments(Mat, LaneDetectionWorkspace)}, but only within the given
+     * search windows (for instance around the lane positions predicted by a tracker). Only the edges within the windows are passed on to the
+     * (expensive) Hough line detection; without any windows the whole region of interest is searched.
+     *
+     * @param image input frame/image.
+     * @param workspace the workspace holding the (reusable) buffers for the intermediate images and the detected segments.
+     * @param searchWindows the windows to search the lane lines in.
+     * @return the detected segments (the segments of the workspace).
+     */
+    public LaneSegments detectLaneSegments(final Mat image, final LaneDetectionWorkspace workspace, final LaneSearchWindows searchWindows) {
+        blurLaneImage(image, workspace, parameters.get());
+        detectEdges(workspace);
+        return detectLaneSegments(workspace, searchWindows);
+    }
+
+    /*
+     * The lane detection is split into three stages (blurLaneImage, detectEdges and detectLaneSegments) that pass their results on through
+     * the workspace, so the PipelinedLaneDetector can run them on separate threads for consecutive frames.
+     */
+
+    /**
+     * First lane detection stage: scales the image (when a processing scale is set), crops the ROI bounds out of it without copying (a
+     * submat), applies the ROI mask within that crop, converts it to grayscale (unless it is a single channel, luma only, image) and blurs it.
+     * All following stages only process the ROI bounds instead of the full frame. The parameters snapshot is stored in the workspace, so all
+     * stages of a frame use the same parameters.
+     */
+    void blurLaneImage(final Mat image, final LaneDetectionWorkspace workspace, final ComputerVisionParameterSet currentParameters) {
+        final long start = System.nanoTime();
+        workspace.parameters = currentParameters;
+        workspace.frameWidth = image.cols();
+        workspace.frameHeight = image.rows();
+
+        final double scale = currentParameters.getProcessingScale();
+        final Mat processedImage;
+        if (scale < 1) {
+            Imgproc.resize(image, workspace.scaledImage, SIZE_FROM_SCALE_FACTORS, scale, scale, Imgproc.INTER_AREA);
+            processedImage = workspace.scaledImage;
+        } else {
+            processedImage = image;
+        }
+
+        long stageStart = System.nanoTime();
+        final Mat roiMask = workspace.regionOfInterestMask.get(processedImage,
+                currentParameters.getRoiXOffsetPercentage(),
+                currentParameters.getRoiYTopPercentage(),
+                currentParameters.getRoiYMiddlePercentage(),
+                currentParameters.getRoiYBottomPercentage());
+        final Mat roiImage = processedImage.submat(workspace.regionOfInterestMask.getBounds());
+        workspace.prepare(roiImage);
+        applyMask(roiImage, roiMask, workspace.maskedImage);
+        roiImage.release();
+        stageStart = pipelineMetrics.recordSince(Stage.ROI_MASK, stageStart);
+
+        final Mat grayImage;
+        if (workspace.maskedImage.channels() == 1) {
+            grayImage = workspace.maskedImage;
+        } else {
+            convertBGRToGrayScale(workspace.maskedImage, workspace.grayImage);
+            grayImage = workspace.grayImage;
+            stageStart = pipelineMetrics.recordSince(Stage.GRAY, stageStart);
+        }
+        removeNoise(grayImage, workspace.blurImage, currentParameters.getBlurSize(), currentParameters.getBlurSize());
+        workspace.blurNanos = pipelineMetrics.recordSince(Stage.BLUR, stageStart) - start;
+    }
+
+    /**
+     * Second lane detection stage: runs the Canny edge detection on the blurred image of the workspace.
+     */
+    void detectEdges(final LaneDetectionWorkspace workspace) {
+        final long stageStart = System.nanoTime();
+        final ComputerVisionParameterSet currentParameters = workspace.parameters;
+        cannyEdgeDetection(workspace.blurImage, workspace.edgeImage,
+                currentParameters.getCannyThreshold1(),
+                currentParameters.getCannyThreshold2(),
+                currentParameters.getCannyApertureSize(),
+                currentParameters.isCannyGradient());
+        workspace.cannyNanos = pipelineMetrics.recordSince(Stage.CANNY, stageStart) - stageStart;
+    }
+
+    /**
+     * Third lane detection stage, restricted to the given search windows: removes all edges outside of the windows from the edge image of the
+     * workspace before detecting the lane line segments in it.
+     * @return the detected segments (the segments of the workspace).
+     */
+    LaneSegments detectLaneSegments(final LaneDetectionWorkspace workspace, final LaneSearchWindows searchWindows) {
+        if (!searchWindows.isEmpty()) {
+            final long stageStart = System.nanoTime();
+            applySearchWindows(workspace, searchWindows);
+            pipelineMetrics.recordSince(Stage.SEARCH_WINDOWS, stageStart);
+        }
+        return detectLaneSegments(workspace);
+    }
+
+    /**
+     * Third lane detection stage: detects the lane line segments in the edge image of the workspace and stores the ones with a slope within
+     * the configured boundaries, in the coordinates of the original image, in the segments of the workspace, along with the number of
+     * detected segments and the durations of the three stages.
+     * @return the detected segments (the segments of the workspace).
+     */
+    LaneSegments detectLaneSegments(final LaneDetectionWorkspace workspace) {
+        final long start = System.nanoTime();
+        final Mat detectedLinesMatrix = detectLines(workspace);
+        final ComputerVisionParameterSet currentParameters = workspace.parameters;
+
+        final LaneSegments laneSegments = workspace.laneSegments;
+        laneSegments.reset(workspace.frameWidth, workspace.frameHeight);
+
+        final int nrOfLines = detectedLinesMatrix.rows();
+        if (nrOfLines == 0) {
+            laneSegments.setDetectionStatistics(0, workspace.blurNanos, workspace.cannyNanos, System.nanoTime() - start);
+            return laneSegments;
+        }
+        if (workspace.detectedLinesBuffer.length < nrOfLines * 4) {
+            workspace.detectedLinesBuffer = new int[nrOfLines * 8];
+        }
+
+        final int[] lines = workspace.detectedLinesBuffer;
+        final double scale = currentParameters.getProcessingScale();
+        final Rect roiBounds = workspace.regionOfInterestMask.getBounds();
+        detectedLinesMatrix.get(0, 0, lines);
+        for (int i = 0; i < nrOfLines * 4; i += 4) {
+            laneSegments.addIfSlopeWithin(
+                    (lines[i] + roiBounds.x) / scale, (lines[i + 1] + roiBounds.y) / scale,
+                    (lines[i + 2] + roiBounds.x) / scale, (lines[i + 3] + roiBounds.y) / scale,
+                    currentParameters.getDetectLineSlopeMin(), currentParameters.getDetectLineSlopeMax());
+        }
+        laneSegments.setDetectionStatistics(nrOfLines, workspace.blurNanos, workspace.cannyNanos, System.nanoTime() - start);
+        return laneSegments;
+    }
+
+    /**
+     * Runs the Hough line detection on the edge image of the workspace. The Hough line lengths and gaps are scaled along with the image, so
+     * they keep their meaning in full resolution pixels.
+     * @return the matrix with the detected lines (the detected lines buffer of the workspace), in the coordinates of the ROI bounds within
+     * the scaled image.
+     */
+    private Mat detectLines(final LaneDetectionWorkspace workspace) {
+        final long stageStart = System.nanoTime();
+        final ComputerVisionParameterSet currentParameters = workspace.parameters;
+        final double scale = currentParameters.getProcessingScale();
+        houghLines(workspace.edgeImage, workspace.detectedLines,
+                currentParameters.getHoughRho(),
+                currentParameters.getHoughTheta(),
+                currentParameters.getHoughThreshold(),
+                scaleLength(currentParameters.getHoughMinLineLength(), scale),
+                scaleLength(currentParameters.getHoughMaxGapSize(), scale));
+        pipelineMetrics.recordSince(Stage.HOUGH, stageStart);
+        return workspace.detectedLines;
+    }
+
+    /**
+     * Rasterises the search windows (converted to the coordinates of the ROI bounds within the scaled image) into the search window mask of
+     * the workspace and applies it to the edge image.
+     */
+    private static void applySearchWindows(final LaneDetectionWorkspace workspace, final LaneSearchWindows searchWindows) {
+        final double scale = workspace.parameters.getProcessingScale();
+        final Rect roiBounds = workspace.regionOfInterestMask.getBounds();
+        final Mat searchWindowMask = workspace.searchWindowMask;
+        searchWindowMask.create(workspace.edgeImage.size(), CvType.CV_8UC1);
+        searchWindowMask.setTo(BLACK);
+
+        final Point[] corners = workspace.searchWindowCorners;
+        final double topY = 0;
+        final double bottomY = workspace.frameHeight;
+        for (int i = 0; i < searchWindows.size(); i++) {
+            final double topX = searchWindows.getXAt(i, topY);
+            final double bottomX = searchWindows.getXAt(i, bottomY);
+            final double halfWidth = searchWindows.getHalfWidth(i);
+            setScaledCorner(corners[0], topX - halfWidth, topY, scale, roiBounds);
+            setScaledCorner(corners[1], topX + halfWidth, topY, scale, roiBounds);
+            setScaledCorner(corners[2], bottomX + halfWidth, bottomY, scale, roiBounds);
+            setScaledCorner(corners[3], bottomX - halfWidth, bottomY, scale, roiBounds);
+
+            workspace.searchWindowPolygon.fromArray(corners);
+            Imgproc.fillConvexPoly(searchWindowMask, workspace.searchWindowPolygon, WHITE);
+        }
+        Core.bitwise_and(workspace.edgeImage, searchWindowMask, workspace.edgeImage);
+    }
+
+    private static void setScaledCorner(final Point corner, final double x, final double y, final double scale, final Rect roiBounds) {
+        corner.x = x * scale - roiBounds.x;
+        corner.y = y * scale - roiBounds.y;
+    }
+
+    private static int scaleLength(final int length, final double scale) {
+        return (int) Math.round(length * scale);
+    }
+
     public List<Line> filterLines(final List<Line> lines) {
-        return filterLines(lines,
-                (double) parameters.get(DETECT_LINE_SLOPE_MIN),
-                (double) parameters.get(DETECT_LINE_SLOPE_MAX));
+        final ComputerVisionParameterSet currentParameters = parameters.get();
+        return filterLines(lines, currentParameters.getDetectLineSlopeMin(), currentParameters.getDetectLineSlopeMax());
     }
 
     public List<Line> filterLines(final List<Line> lines, double lowSlope, double highSlope) {
@@ -148,7 +357,24 @@ public class ComputerVisionHelper {
      * @return the mask image.
      */
     public Mat getRegionOfInterestMask(final Mat image, final List<MatOfPoint> vertices) {
-        final Mat mask = new Mat(image.size(), image.type());
+        final Mat mask = new Mat();
+        final Mat result = new Mat();
+        getRegionOfInterestMask(image, vertices, mask, result);
+        mask.release();
+
+        return result;
+    }
+
+    /**
+     * Writes the mask that selects the region of interest as marked by the provided vertices into the mask Mat, and the image with that
+     * mask applied into the result Mat.
+     * @param image an image that defines the size, type and amount of channels to use in the mask.
+     * @param vertices a list of vertices that defines the contours of the mask.
+     * @param mask the destination for the mask image.
+     * @param result the destination for the masked image.
+     * @return the result Mat.
+     */
+    public Mat getRegionOfInterestMask(final Mat image, final List<MatOfPoint> vertices, final Mat mask, final Mat result) {
         final Scalar ignoreMaskColor;
 
         switch (image.channels()) {
@@ -166,7 +392,8 @@ public class ComputerVisionHelper {
                 break;
         }
 
-        final Mat result = new Mat();
+        mask.create(image.size(), image.type());
+        mask.setTo(Scalar.all(0));
         Imgproc.fillPoly(mask, vertices, ignoreMaskColor);
         Core.bitwise_and(image, mask, result);
         return result;
@@ -179,7 +406,17 @@ public class ComputerVisionHelper {
      * @return the masked image.
      */
     public Mat applyMask(final Mat image, final Mat mask) {
-        final Mat result = new Mat();
+        return applyMask(image, mask, new Mat());
+    }
+
+    /**
+     * Applies the given mask on the image and writes the (masked) result into the provided destination.
+     * @param image the image to apply the mask on.
+     * @param mask the mask to apply to the image.
+     * @param result the destination for the masked image; may be the source image itself.
+     * @return the result Mat.
+     */
+    public Mat applyMask(final Mat image, final Mat mask, final Mat result) {
         Core.bitwise_and(image, mask, result);
 
         return result;
@@ -191,7 +428,16 @@ public class ComputerVisionHelper {
      * @return the GrayScale image.
      */
     public Mat convertBGRToGrayScale(final Mat image) {
-        final Mat result = new Mat();
+        return convertBGRToGrayScale(image, new Mat());
+    }
+
+    /**
+     * Converts the provided BGR image into a grayscale image, written into the provided destination.
+     * @param image the image to convert.
+     * @param result the destination for the GrayScale image.
+     * @return the result Mat.
+     */
+    public Mat convertBGRToGrayScale(final Mat image, final Mat result) {
         Imgproc.cvtColor(image, result, Imgproc.COLOR_BGR2GRAY);
 
         return result;
@@ -203,7 +449,16 @@ public class ComputerVisionHelper {
      * @return the BGR color image.
      */
     public Mat convertGrayScaleToBGRColor(final Mat image) {
-        final Mat result = new Mat();
+        return convertGrayScaleToBGRColor(image, new Mat());
+    }
+
+    /**
+     * Converts the provided grayscale image into a color (BGR) image, written into the provided destination.
+     * @param image the image to convert.
+     * @param result the destination for the BGR color image.
+     * @return the result Mat.
+     */
+    public Mat convertGrayScaleToBGRColor(final Mat image, final Mat result) {
         Imgproc.cvtColor(image, result, Imgproc.COLOR_GRAY2BGR);
 
         return result;
@@ -215,7 +470,16 @@ public class ComputerVisionHelper {
      * @return the HSV image.
      */
     public Mat convertBGRColorToHSV(final Mat image) {
-        final Mat result = new Mat();
+        return convertBGRColorToHSV(image, new Mat());
+    }
+
+    /**
+     * Converts the provided BGR image into a HSV image, written into the provided destination.
+     * @param image the image to convert.
+     * @param result the destination for the HSV image.
+     * @return the result Mat.
+     */
+    public Mat convertBGRColorToHSV(final Mat image, final Mat result) {
         Imgproc.cvtColor(image, result, Imgproc.COLOR_BGR2HSV);
 
         return result;
@@ -227,9 +491,18 @@ public class ComputerVisionHelper {
      * @return the image with the noise removed.
      */
     public Mat removeNoise(final Mat image) {
-        return removeNoise(image,
-                (Integer) parameters.get(BLUR_SIZE),
-                (Integer) parameters.get(BLUR_SIZE));
+        return removeNoise(image, new Mat());
+    }
+
+    /**
+     * Writes the image with some of the noise removed (due to blurring of the image) into the provided destination.
+     * @param image the image to remove the noise in.
+     * @param result the destination for the blurred image.
+     * @return the result Mat.
+     */
+    public Mat removeNoise(final Mat image, final Mat result) {
+        final int blurSize = parameters.get().getBlurSize();
+        return removeNoise(image, result, blurSize, blurSize);
     }
 
     /**
@@ -238,7 +511,16 @@ public class ComputerVisionHelper {
      * @return the image with the noise removed.
      */
     public Mat removeNoise(final Mat image, int blurX, int blurY) {
-        final Mat result = new Mat();
+        return removeNoise(image, new Mat(), blurX, blurY);
+    }
+
+    /**
+     * Writes the image with some of the noise removed (due to blurring of the image) into the provided destination.
+     * @param image the image to remove the noise in.
+     * @param result the destination for the blurred image.
+     * @return the result Mat.
+     */
+    public Mat removeNoise(final Mat image, final Mat result, int blurX, int blurY) {
         org.opencv.imgproc.Imgproc.GaussianBlur(image, result, new Size(blurX, blurY), 0, 0);
 
         return result;
@@ -250,11 +532,22 @@ public class ComputerVisionHelper {
      * @return an image with the edges shown.
      */
     public Mat cannyEdgeDetection(final Mat image) {
-        return cannyEdgeDetection(image,
-                (Integer) parameters.get(CANNY_THRESHOLD1),
-                (Integer) parameters.get(CANNY_THRESHOLD1),
-                (Integer) parameters.get(CANNY_APERTURE_SIZE),
-                (Boolean) parameters.get(CANNY_GRADIENT));
+        return cannyEdgeDetection(image, new Mat());
+    }
+
+    /**
+     * Writes an image showing the edges of the given image into the provided destination.
+     * @param image the source image of which the edges are to be detected,
+     * @param result the destination for the edges image.
+     * @return the result Mat.
+     */
+    public Mat cannyEdgeDetection(final Mat image, final Mat result) {
+        final ComputerVisionParameterSet currentParameters = parameters.get();
+        return cannyEdgeDetection(image, result,
+                currentParameters.getCannyThreshold1(),
+                currentParameters.getCannyThreshold2(),
+                currentParameters.getCannyApertureSize(),
+                currentParameters.isCannyGradient());
     }
 
     /**
@@ -263,7 +556,16 @@ public class ComputerVisionHelper {
      * @return an image with the edges shown.
      */
     public Mat cannyEdgeDetection(final Mat image, int threshold1, int threshold2, int aperture, boolean gradient) {
-        final Mat result = new Mat();
+        return cannyEdgeDetection(image, new Mat(), threshold1, threshold2, aperture, gradient);
+    }
+
+    /**
+     * Writes an image showing the edges of the given image into the provided destination.
+     * @param image the source image of which the edges are to be detected,
+     * @param result the destination for the edges image.
+     * @return the result Mat.
+     */
+    public Mat cannyEdgeDetection(final Mat image, final Mat result, int threshold1, int threshold2, int aperture, boolean gradient) {
         Imgproc.Canny(image, result, threshold1, threshold2, aperture, gradient);
 
         return result;
@@ -275,12 +577,23 @@ public class ComputerVisionHelper {
      * @return a one dimensial Matrix (only 1 single row) containing all the lines as 4 size double arrays (describing the two points of the line).
      */
     public Mat houghLines(final Mat cannyImage) {
-        return houghLines(cannyImage,
-                (Double) parameters.get(HOUGH_RHO),
-                (Double) parameters.get(HOUGH_THETA),
-                (Integer) parameters.get(HOUGH_THRESHOLD),
-                (Integer) parameters.get(HOUGH_MIN_LINE_LENGTH),
-                (Integer) parameters.get(HOUGH_MAX_GAP_SIZE));
+        return houghLines(cannyImage, new Mat());
+    }
+
+    /**
+     * Writes the detected lines into the provided destination Matrix.
+     * @param cannyImage (grayscale) image that is the result of a Canny edge detection.
+     * @param lines the destination for the detected lines.
+     * @return the lines Mat.
+     */
+    public Mat houghLines(final Mat cannyImage, final Mat lines) {
+        final ComputerVisionParameterSet currentParameters = parameters.get();
+        return houghLines(cannyImage, lines,
+                currentParameters.getHoughRho(),
+                currentParameters.getHoughTheta(),
+                currentParameters.getHoughThreshold(),
+                currentParameters.getHoughMinLineLength(),
+                currentParameters.getHoughMaxGapSize());
     }
 
     /**
@@ -289,7 +602,16 @@ public class ComputerVisionHelper {
      * @return a one dimensial Matrix (only 1 single row) containing all the lines as 4 size double arrays (describing the two points of the line).
      */
     public Mat houghLines(final Mat cannyImage, double rho, double theta, int threshold, int minLineLength, int maxGapSize) {
-        final Mat lines = new Mat();
+        return houghLines(cannyImage, new Mat(), rho, theta, threshold, minLineLength, maxGapSize);
+    }
+
+    /**
+     * Writes the detected lines into the provided destination Matrix.
+     * @param cannyImage (grayscale) image that is the result of a Canny edge detection.
+     * @param lines the destination for the detected lines.
+     * @return the lines Mat.
+     */
+    public Mat houghLines(final Mat cannyImage, final Mat lines, double rho, double theta, int threshold, int minLineLength, int maxGapSize) {
         Imgproc.HoughLinesP(cannyImage, lines, rho, theta, threshold, minLineLength, maxGapSize);
 
         return lines;
@@ -304,30 +626,6 @@ public class ComputerVisionHelper {
         Imgcodecs.imwrite(String.format("%1$s%2$s-%3$tH%3$tM%3$tS.%3$tL.jpg", imageStoragePath, fileName, new Date()), image);
     }
 
-    /**
-     * Returns the Region of Interest as an array of {@link Point}s.
-     * @param size the size of the image to which the ROI applies.
-     * @return an array of Points that together make up the ROI.
-     */
-    private Point[] getROIPoints(final Size size) {
-        final int xOffset = (int) (size.width * (Double) parameters.get(ROI_X_OFFSET_PERCENTAGE));
-
-        final int xLeft = xOffset;
-        final int xRight = (int) size.width - xOffset;
-        final int yTop = (int) (size.height * (Double) parameters.get(ROI_Y_TOP_PERCENTAGE));
-        final int yMiddle = (int) (size.height * (Double) parameters.get(ROI_Y_MIDDLE_PERCENTAGE));
-        final int yBottom = (int) (size.height * (Double) parameters.get(ROI_Y_BOTTOM_PERCENTAGE));
-
-        return new Point[] {
-                new Point(0, yBottom),
-                new Point(0, yMiddle),
-                new Point(xLeft, yTop),
-                new Point(xRight, yTop),
-                new Point(size.width, yMiddle),
-                new Point(size.width, yBottom)
-        };
-    }
-
     /**
      * Returns the Hue value for a RGB value.
      * @return the Hue value for a RGB value.
@@ -369,6 +667,25 @@ public class ComputerVisionHelper {
         return applyMask(convertBGRToGrayScale(image), colorMask);
     }
 
+    /**
+     * Counts the pixels within a region of the image of which every channel is within the given boundaries. Unlike
+     * {@link #filterToColor(Mat, Scalar, Scalar)} this does not convert the image to HSV and only processes the region itself, so it is cheap
+     * enough to run on every frame the camera delivers.
+     *
+     * @param image the source image (BGR, or a single luma channel).
+     * @param region the region of the image to count the pixels in.
+     * @param lowerBoundary the lower boundary of every channel (inclusive).
+     * @param upperBoundary the upper boundary of every channel (inclusive).
+     * @param mask the (reusable) buffer to write the mask of the pixels within the boundaries into.
+     * @return the number of pixels within the region with all channels within the boundaries.
+     */
+    public int countPixelsInRange(final Mat image, final Rect region, final Scalar lowerBoundary, final Scalar upperBoundary, final Mat mask) {
+        final Mat regionImage = image.submat(region);
+        Core.inRange(regionImage, lowerBoundary, upperBoundary, mask);
+        regionImage.release();
+        return Core.countNonZero(mask);
+    }
+
     /**
      * Returns the amount of black pixels in the given image.
      * @param image the image to check the pixels
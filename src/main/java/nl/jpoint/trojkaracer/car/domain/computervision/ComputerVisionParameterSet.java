@@ -0,0 +1,303 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+import org.opencv.core.Scalar;
+
+/**
+ * Immutable, typed snapshot of all {@link ComputerVisionParameters}. A pipeline reads the snapshot once per frame and uses it for all of its
+ * stages; changing a parameter results in a new snapshot (see {@link #with(ComputerVisionParameters, Object)}), and only with a value that
+ * OpenCV accepts for it, so a bad value is rejected when it is set instead of failing every frame of the pipeline.
+ * <p>The {@link Scalar} values are shared between snapshots and must not be modified.</p>
+ */
+@Value
+@Builder(toBuilder = true)
+public class ComputerVisionParameterSet {
+
+    /**
+     * The factor the frames are scaled with before they are processed; 1 to process the frames at full resolution, 0.5 to process them at
+     * half the width and height.
+     */
+    private final double processingScale;
+
+    private final int cannyThreshold1;
+    private final int cannyThreshold2;
+    private final int cannyApertureSize;
+    private final boolean cannyGradient;
+
+    private final int blurSize;
+
+    private final double houghRho;
+    private final double houghTheta;
+    private final int houghThreshold;
+    private final int houghMinLineLength;
+    private final int houghMaxGapSize;
+
+    private final double detectLineSlopeMin;
+    private final double detectLineSlopeMax;
+
+    private final Scalar drawLineColor;
+    private final int drawLineThickness;
+
+    private final Scalar laneLineGrayLower;
+    private final Scalar laneLineGrayUpper;
+    private final Scalar laneLineColorLower;
+    private final Scalar laneLineColorUpper;
+
+    private final double roiXOffsetPercentage;
+    private final double roiYTopPercentage;
+    private final double roiYMiddlePercentage;
+    private final double roiYBottomPercentage;
+
+    /**
+     * Returns the snapshot with all the default parameters set.
+     * @return the snapshot with all the default parameters set.
+     */
+    public static ComputerVisionParameterSet defaults() {
+        return ComputerVisionParameterSet.builder()
+                .processingScale(1d)
+                .cannyThreshold1(50)
+                .cannyThreshold2(180)
+                .cannyApertureSize(3)
+                .cannyGradient(false)
+                .blurSize(5)
+                .houghRho(2d)
+                .houghTheta(Math.PI / 180)
+                .houghThreshold(1)
+                .houghMinLineLength(15)
+                .houghMaxGapSize(5)
+                .detectLineSlopeMin(0.2)
+                .detectLineSlopeMax(15d)
+                .drawLineColor(new Scalar(0, 0, 255))
+                .drawLineThickness(3)
+                .laneLineGrayLower(new Scalar(200))
+                .laneLineGrayUpper(new Scalar(255))
+                .laneLineColorLower(new Scalar(100, 5, 75))
+                .laneLineColorUpper(new Scalar(180, 30, 250))
+                .roiXOffsetPercentage(0.15d)
+                .roiYTopPercentage(0.50d)
+                .roiYMiddlePercentage(0.85d)
+                .roiYBottomPercentage(1d)
+                .build();
+    }
+
+    /**
+     * Returns a new snapshot with the given parameter changed to the given value; all other parameters keep their current value.
+     * @param parameter the parameter to change.
+     * @param value the new value; a {@link Number} for integer and double parameters, a {@link Boolean} for boolean parameters and a
+     *              {@link Scalar}, double array or list of numbers for color parameters.
+     * @return the new snapshot.
+     * @throws IllegalArgumentException in case the parameter is missing, the value can not be converted to the type of the parameter (like a
+     * fractional value for an integer parameter), or lies outside the domain of the parameter (like an even blur size or a negative threshold).
+     */
+    public ComputerVisionParameterSet with(final ComputerVisionParameters parameter, final Object value) {
+        if (parameter == null) {
+            throw new IllegalArgumentException(String.format("Missing computer vision parameter (parameter: %s, value: %s)", parameter, value));
+        }
+        final ComputerVisionParameterSetBuilder builder = toBuilder();
+
+        switch (parameter) {
+            case PROCESSING_SCALE:
+                return builder.processingScale(toProcessingScale(parameter, value)).build();
+            case CANNY_THRESHOLD1:
+                return builder.cannyThreshold1(toNonNegativeInt(parameter, value)).build();
+            case CANNY_THRESHOLD2:
+                return builder.cannyThreshold2(toNonNegativeInt(parameter, value)).build();
+            case CANNY_APERTURE_SIZE:
+                return builder.cannyApertureSize(toCannyApertureSize(parameter, value)).build();
+            case CANNY_GRADIENT:
+                return builder.cannyGradient(toBoolean(parameter, value)).build();
+            case BLUR_SIZE:
+                return builder.blurSize(toBlurSize(parameter, value)).build();
+            case HOUGH_RHO:
+                return builder.houghRho(toPositiveDouble(parameter, value)).build();
+            case HOUGH_THETA:
+                return builder.houghTheta(toPositiveDouble(parameter, value)).build();
+            case HOUGH_THRESHOLD:
+                return builder.houghThreshold(toPositiveInt(parameter, value)).build();
+            case HOUGH_MIN_LINE_LENGTH:
+                return builder.houghMinLineLength(toNonNegativeInt(parameter, value)).build();
+            case HOUGH_MAX_GAP_SIZE:
+                return builder.houghMaxGapSize(toNonNegativeInt(parameter, value)).build();
+            case DETECT_LINE_SLOPE_MIN:
+                return builder.detectLineSlopeMin(toNonNegativeDouble(parameter, value)).build();
+            case DETECT_LINE_SLOPE_MAX:
+                return builder.detectLineSlopeMax(toNonNegativeDouble(parameter, value)).build();
+            case DRAW_LINE_COLOR:
+                return builder.drawLineColor(toScalar(parameter, value)).build();
+            case DRAW_LINE_THICKNESS:
+                return builder.drawLineThickness(toPositiveInt(parameter, value)).build();
+            case LANE_LINE_GRAY_LOWER:
+                return builder.laneLineGrayLower(toScalar(parameter, value)).build();
+            case LANE_LINE_GRAY_UPPER:
+                return builder.laneLineGrayUpper(toScalar(parameter, value)).build();
+            case LANE_LINE_COLOR_LOWER:
+                return builder.laneLineColorLower(toScalar(parameter, value)).build();
+            case LANE_LINE_COLOR_UPPER:
+                return builder.laneLineColorUpper(toScalar(parameter, value)).build();
+            case ROI_X_OFFSET_PERCENTAGE:
+                return builder.roiXOffsetPercentage(toPercentage(parameter, value)).build();
+            case ROI_Y_TOP_PERCENTAGE:
+                return builder.roiYTopPercentage(toPercentage(parameter, value)).build();
+            case ROI_Y_MIDDLE_PERCENTAGE:
+                return builder.roiYMiddlePercentage(toPercentage(parameter, value)).build();
+            case ROI_Y_BOTTOM_PERCENTAGE:
+                return builder.roiYBottomPercentage(toPercentage(parameter, value)).build();
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported computer vision parameter (parameter: %s)", parameter));
+        }
+    }
+
+    /**
+     * Returns all parameters with their values; color parameters are returned as double arrays.
+     * @return all parameters with their values.
+     */
+    public Map<ComputerVisionParameters, Object> toMap() {
+        final Map<ComputerVisionParameters, Object> map = new EnumMap<>(ComputerVisionParameters.class);
+        map.put(ComputerVisionParameters.PROCESSING_SCALE, processingScale);
+        map.put(ComputerVisionParameters.CANNY_THRESHOLD1, cannyThreshold1);
+        map.put(ComputerVisionParameters.CANNY_THRESHOLD2, cannyThreshold2);
+        map.put(ComputerVisionParameters.CANNY_APERTURE_SIZE, cannyApertureSize);
+        map.put(ComputerVisionParameters.CANNY_GRADIENT, cannyGradient);
+        map.put(ComputerVisionParameters.BLUR_SIZE, blurSize);
+        map.put(ComputerVisionParameters.HOUGH_RHO, houghRho);
+        map.put(ComputerVisionParameters.HOUGH_THETA, houghTheta);
+        map.put(ComputerVisionParameters.HOUGH_THRESHOLD, houghThreshold);
+        map.put(ComputerVisionParameters.HOUGH_MIN_LINE_LENGTH, houghMinLineLength);
+        map.put(ComputerVisionParameters.HOUGH_MAX_GAP_SIZE, houghMaxGapSize);
+        map.put(ComputerVisionParameters.DETECT_LINE_SLOPE_MIN, detectLineSlopeMin);
+        map.put(ComputerVisionParameters.DETECT_LINE_SLOPE_MAX, detectLineSlopeMax);
+        map.put(ComputerVisionParameters.DRAW_LINE_COLOR, drawLineColor.val.clone());
+        map.put(ComputerVisionParameters.DRAW_LINE_THICKNESS, drawLineThickness);
+        map.put(ComputerVisionParameters.LANE_LINE_GRAY_LOWER, laneLineGrayLower.val.clone());
+        map.put(ComputerVisionParameters.LANE_LINE_GRAY_UPPER, laneLineGrayUpper.val.clone());
+        map.put(ComputerVisionParameters.LANE_LINE_COLOR_LOWER, laneLineColorLower.val.clone());
+        map.put(ComputerVisionParameters.LANE_LINE_COLOR_UPPER, laneLineColorUpper.val.clone());
+        map.put(ComputerVisionParameters.ROI_X_OFFSET_PERCENTAGE, roiXOffsetPercentage);
+        map.put(ComputerVisionParameters.ROI_Y_TOP_PERCENTAGE, roiYTopPercentage);
+        map.put(ComputerVisionParameters.ROI_Y_MIDDLE_PERCENTAGE, roiYMiddlePercentage);
+        map.put(ComputerVisionParameters.ROI_Y_BOTTOM_PERCENTAGE, roiYBottomPercentage);
+        return map;
+    }
+
+    private static int toInt(final ComputerVisionParameters parameter, final Object value) {
+        if (!(value instanceof Number)) {
+            throw invalidValue(parameter, value);
+        }
+        // Fractional values are rejected instead of truncated, so they can not sneak past the domain checks
+        final double doubleValue = ((Number) value).doubleValue();
+        if (doubleValue != Math.rint(doubleValue) || doubleValue < Integer.MIN_VALUE || doubleValue > Integer.MAX_VALUE) {
+            throw invalidValue(parameter, value);
+        }
+        return (int) doubleValue;
+    }
+
+    private static double toDouble(final ComputerVisionParameters parameter, final Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw invalidValue(parameter, value);
+    }
+
+    private static int toNonNegativeInt(final ComputerVisionParameters parameter, final Object value) {
+        final int intValue = toInt(parameter, value);
+        if (intValue < 0) {
+            throw outOfDomain(parameter, value, "zero or positive");
+        }
+        return intValue;
+    }
+
+    private static int toPositiveInt(final ComputerVisionParameters parameter, final Object value) {
+        final int intValue = toInt(parameter, value);
+        if (intValue <= 0) {
+            throw outOfDomain(parameter, value, "positive");
+        }
+        return intValue;
+    }
+
+    private static int toBlurSize(final ComputerVisionParameters parameter, final Object value) {
+        final int blurSize = toInt(parameter, value);
+        if (blurSize <= 0 || blurSize % 2 == 0) {
+            throw outOfDomain(parameter, value, "odd and positive");
+        }
+        return blurSize;
+    }
+
+    private static int toCannyApertureSize(final ComputerVisionParameters parameter, final Object value) {
+        final int apertureSize = toInt(parameter, value);
+        if (apertureSize != 3 && apertureSize != 5 && apertureSize != 7) {
+            throw outOfDomain(parameter, value, "3, 5 or 7");
+        }
+        return apertureSize;
+    }
+
+    private static double toNonNegativeDouble(final ComputerVisionParameters parameter, final Object value) {
+        final double doubleValue = toDouble(parameter, value);
+        if (!(doubleValue >= 0)) {
+            throw outOfDomain(parameter, value, "zero or positive");
+        }
+        return doubleValue;
+    }
+
+    private static double toPositiveDouble(final ComputerVisionParameters parameter, final Object value) {
+        final double doubleValue = toDouble(parameter, value);
+        if (!(doubleValue > 0)) {
+            throw outOfDomain(parameter, value, "positive");
+        }
+        return doubleValue;
+    }
+
+    private static double toPercentage(final ComputerVisionParameters parameter, final Object value) {
+        final double percentage = toDouble(parameter, value);
+        if (!(percentage >= 0 && percentage <= 1)) {
+            throw outOfDomain(parameter, value, "between 0 and 1");
+        }
+        return percentage;
+    }
+
+    private static double toProcessingScale(final ComputerVisionParameters parameter, final Object value) {
+        final double scale = toDouble(parameter, value);
+        if (!(scale > 0 && scale <= 1)) {
+            throw outOfDomain(parameter, value, "larger than 0 and at most 1");
+        }
+        return scale;
+    }
+
+    private static boolean toBoolean(final ComputerVisionParameters parameter, final Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw invalidValue(parameter, value);
+    }
+
+    private static Scalar toScalar(final ComputerVisionParameters parameter, final Object value) {
+        if (value instanceof Scalar) {
+            return new Scalar(((Scalar) value).val);
+        }
+        if (value instanceof double[]) {
+            return new Scalar((double[]) value);
+        }
+        if (value instanceof List) {
+            final List<?> values = (List<?>) value;
+            final double[] scalarValues = new double[values.size()];
+            for (int i = 0; i < scalarValues.length; i++) {
+                scalarValues[i] = toDouble(parameter, values.get(i));
+            }
+            return new Scalar(scalarValues);
+        }
+        throw invalidValue(parameter, value);
+    }
+
+    private static IllegalArgumentException outOfDomain(final ComputerVisionParameters parameter, final Object value, final String domain) {
+        return new IllegalArgumentException(String.format("Illegal value for computer vision parameter, it should be %s (parameter: %s, value: %s)",
+                domain, parameter, value));
+    }
+
+    private static IllegalArgumentException invalidValue(final ComputerVisionParameters parameter, final Object value) {
+        return new IllegalArgumentException(String.format("Illegal value for computer vision parameter of type %s (parameter: %s, value: %s)",
+                parameter.getClazz().getSimpleName(), parameter, value));
+    }
+}
@@ -7,6 +7,8 @@ import org.opencv.core.Scalar;
  */
 public enum ComputerVisionParameters {
 
+    PROCESSING_SCALE(Double.class),
+
     CANNY_THRESHOLD1(Integer.class),
     CANNY_THRESHOLD2(Integer.class),
     CANNY_APERTURE_SIZE(Integer.class),
@@ -0,0 +1,168 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes debug images (the color filtered frame with the detected lanes drawn on it) to disk on a background thread. Frames are sampled
+ * (every n-th frame and/or at most a number of frames per second) and handed over through a bounded queue; when the queue is full the frame
+ * is dropped, so submitting a frame never blocks the caller. A queued frame is retained until it was written (see {@link Frame#retain()}).
+ * <p>A disabled writer does not start a thread and ignores all submitted frames.</p>
+ */
+public class DebugImageWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String IMAGE_NAME = "lanes";
+
+    private final ComputerVisionHelper computerVisionHelper;
+    private final boolean enabled;
+    private final int everyNthFrame;
+    private final long minimalIntervalNanos;
+    private final BlockingQueue<Frame> queue;
+    private final AtomicLong droppedFrames = new AtomicLong(0);
+    private final Thread writerThread;
+
+    private long lastAcceptedTimestamp;
+    private volatile boolean running;
+
+    /**
+     * Creates a new (enabled) debug image writer and starts its writer thread.
+     * @param computerVisionHelper the helper to render and write the images with.
+     * @param everyNthFrame only every n-th frame (by sequence number) is written; 1 or less to write every frame.
+     * @param maxFramesPerSecond the maximum number of frames to write per second; 0 or less for no maximum.
+     * @param queueCapacity the maximum number of frames waiting to be written.
+     */
+    public DebugImageWriter(final ComputerVisionHelper computerVisionHelper,
+                            final int everyNthFrame,
+                            final int maxFramesPerSecond,
+                            final int queueCapacity) {
+        this(computerVisionHelper, true, everyNthFrame, maxFramesPerSecond, queueCapacity);
+    }
+
+    private DebugImageWriter(final ComputerVisionHelper computerVisionHelper,
+                             final boolean enabled,
+                             final int everyNthFrame,
+                             final int maxFramesPerSecond,
+                             final int queueCapacity) {
+        this.computerVisionHelper = computerVisionHelper;
+        this.enabled = enabled;
+        this.everyNthFrame = Math.max(1, everyNthFrame);
+        this.minimalIntervalNanos = maxFramesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond : 0;
+
+        if (enabled) {
+            LOGGER.info("Writing debug images for every {}th frame with a maximum of {} frames per second.", this.everyNthFrame, maxFramesPerSecond);
+
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            this.writerThread = new Thread(this::writeImages, "debug-image-writer");
+            this.writerThread.setDaemon(true);
+            this.writerThread.setPriority(Thread.MIN_PRIORITY);
+            this.running = true;
+            this.writerThread.start();
+        } else {
+            this.queue = null;
+            this.writerThread = null;
+        }
+    }
+
+    /**
+     * Returns a writer that never writes any image.
+     * @return a writer that never writes any image.
+     */
+    public static DebugImageWriter disabled() {
+        return new DebugImageWriter(null, false, 1, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Submits a frame for writing; the frame is only written when it is selected by the sampling and there is room in the queue.
+     * This method is meant to be called from a single (pipeline) thread and never blocks.
+     * @param frame the frame to (possibly) write.
+     */
+    public void submit(final Frame frame) {
+        if (!enabled || frame.getSequenceNumber() % everyNthFrame != 0) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        if (minimalIntervalNanos > 0 && lastAcceptedTimestamp != 0 && now - lastAcceptedTimestamp < minimalIntervalNanos) {
+            return;
+        }
+        lastAcceptedTimestamp = now;
+
+        if (!frame.retain()) {
+            return;
+        }
+        if (!queue.offer(frame)) {
+            frame.release();
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the writer thread; frames still in the queue are discarded.
+     */
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+
+        running = false;
+        writerThread.interrupt();
+
+        final List<Frame> discardedFrames = new ArrayList<>();
+        queue.drainTo(discardedFrames);
+        discardedFrames.forEach(Frame::release);
+        LOGGER.info("Stopped writing debug images; {} frames were dropped because the queue was full.", droppedFrames.get());
+    }
+
+    private void writeImages() {
+        while (running) {
+            final Frame frame;
+            try {
+                frame = queue.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                writeImage(frame.getImage());
+            } catch (final RuntimeException e) {
+                LOGGER.error("Failed to write debug image.", e);
+            } finally {
+                frame.release();
+            }
+        }
+    }
+
+    private void writeImage(final Mat image) {
+        // Luma only frames have no colors to filter on, so they are written as they are
+        final Mat colorOfInterestImage = image.channels() == 1
+                ? image
+                : computerVisionHelper.filterToColor(image, new Scalar(15, 5, 25), new Scalar(180, 250, 250));
+        final Mat debugImage = computerVisionHelper.addLanesToImage(computerVisionHelper.convertGrayScaleToBGRColor(colorOfInterestImage));
+        computerVisionHelper.writeImage(debugImage, IMAGE_NAME);
+
+        if (colorOfInterestImage != image) {
+            colorOfInterestImage.release();
+        }
+        debugImage.release();
+    }
+}
@@ -0,0 +1,89 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+
+/**
+ * Set of reusable (native) buffers for a single lane detection pipeline. The buffers are allocated once for a given frame size and type and
+ * are reused for every following frame, so a steady stream of equally sized frames does not allocate any native memory per frame.
+ * <p>A workspace is not thread safe; every pipeline should use its own instance and {@link #release()} it when it is no longer needed. A
+ * pipelined detection (see {@link PipelinedLaneDetector}) hands a workspace from stage to stage along with its frame, so a workspace is only
+ * used by one stage at a time.</p>
+ */
+public class LaneDetectionWorkspace {
+
+    final RegionOfInterestMask regionOfInterestMask = new RegionOfInterestMask();
+    final Mat scaledImage = new Mat();
+    final Mat maskedImage = new Mat();
+    final Mat grayImage = new Mat();
+    final Mat blurImage = new Mat();
+    final Mat edgeImage = new Mat();
+    final Mat detectedLines = new Mat();
+    final Mat searchWindowMask = new Mat();
+    final MatOfPoint searchWindowPolygon = new MatOfPoint();
+    final Point[] searchWindowCorners = { new Point(), new Point(), new Point(), new Point() };
+    final LaneSegments laneSegments = new LaneSegments(64);
+    int[] detectedLinesBuffer = new int[256];
+
+    // The parameters and frame size of the frame being processed, set by the first lane detection stage for the stages that follow it.
+    ComputerVisionParameterSet parameters;
+    int frameWidth;
+    int frameHeight;
+    long blurNanos;
+    long cannyNanos;
+
+    private int width = -1;
+    private int height = -1;
+    private int type = -1;
+
+    /**
+     * Makes sure all buffers are allocated for images with the size and type of the provided image. Buffers are only (re)allocated when the
+     * size or type differs from the previous image.
+     * @param image the image that is about to be processed using this workspace.
+     */
+    void prepare(final Mat image) {
+        if (image.cols() == width && image.rows() == height && image.type() == type) {
+            return;
+        }
+
+        width = image.cols();
+        height = image.rows();
+        type = image.type();
+
+        final Size size = image.size();
+        maskedImage.create(size, type);
+        grayImage.create(size, CvType.CV_8UC1);
+        blurImage.create(size, CvType.CV_8UC1);
+        edgeImage.create(size, CvType.CV_8UC1);
+    }
+
+    /**
+     * Returns the segments detected in the last frame processed with this workspace.
+     * @return the segments detected in the last frame processed with this workspace.
+     */
+    public LaneSegments getLaneSegments() {
+        return laneSegments;
+    }
+
+    /**
+     * Releases all native buffers of this workspace. The workspace can still be used afterwards, in which case the buffers are allocated again.
+     */
+    public void release() {
+        regionOfInterestMask.release();
+        scaledImage.release();
+        maskedImage.release();
+        grayImage.release();
+        blurImage.release();
+        edgeImage.release();
+        detectedLines.release();
+        searchWindowMask.release();
+        searchWindowPolygon.release();
+
+        width = -1;
+        height = -1;
+        type = -1;
+    }
+}
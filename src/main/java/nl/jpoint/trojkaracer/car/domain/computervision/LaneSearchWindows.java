@@ -0,0 +1,80 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.util.Arrays;
+
+/**
+ * The windows to search the lane lines in, one per lane: a band with a given half width around a (predicted) lane line. The lane line is
+ * given by its position at two heights and is extrapolated over the full height of the frame. All positions are in the coordinates of the
+ * (unscaled) frame.
+ * <p>Without any windows the whole region of interest is searched. The windows are kept in primitive arrays that are reused for every frame;
+ * instances are not thread safe.</p>
+ */
+public class LaneSearchWindows {
+
+    private static final int VALUES_PER_WINDOW = 5;
+    private static final int NEAR_X = 0;
+    private static final int NEAR_Y = 1;
+    private static final int FAR_X = 2;
+    private static final int FAR_Y = 3;
+    private static final int HALF_WIDTH = 4;
+
+    private double[] windows = new double[2 * VALUES_PER_WINDOW];
+    private int size;
+
+    /**
+     * Removes all windows, so the whole region of interest is searched.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a window around the lane line through the two given points.
+     * @param nearX the x position of the lane line at the near height.
+     * @param nearY the near height.
+     * @param farX the x position of the lane line at the far height.
+     * @param farY the far height; must differ from the near height.
+     * @param halfWidth the distance from the lane line to the sides of the window.
+     */
+    public void add(final double nearX, final double nearY, final double farX, final double farY, final double halfWidth) {
+        if (nearY == farY) {
+            throw new IllegalArgumentException(String.format("The near and far height of a window must differ (height: %s)", nearY));
+        }
+        if ((size + 1) * VALUES_PER_WINDOW > windows.length) {
+            windows = Arrays.copyOf(windows, windows.length * 2);
+        }
+
+        final int offset = size * VALUES_PER_WINDOW;
+        windows[offset + NEAR_X] = nearX;
+        windows[offset + NEAR_Y] = nearY;
+        windows[offset + FAR_X] = farX;
+        windows[offset + FAR_Y] = farY;
+        windows[offset + HALF_WIDTH] = halfWidth;
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x position of the lane line of a window at the given height.
+     * @param index the index of the window.
+     * @param y the height.
+     * @return the x position of the lane line of the window at the given height.
+     */
+    public double getXAt(final int index, final double y) {
+        final int offset = index * VALUES_PER_WINDOW;
+        final double nearX = windows[offset + NEAR_X];
+        final double nearY = windows[offset + NEAR_Y];
+        return nearX + (windows[offset + FAR_X] - nearX) * (y - nearY) / (windows[offset + FAR_Y] - nearY);
+    }
+
+    public double getHalfWidth(final int index) {
+        return windows[index * VALUES_PER_WINDOW + HALF_WIDTH];
+    }
+}
@@ -0,0 +1,177 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.util.Arrays;
+
+/**
+ * Reusable, primitive (struct-of-arrays) store of the line segments detected in a single frame. Every segment is stored by the coordinates
+ * of its two end points, its inverse slope (the change in x per pixel in y) and its length. The arrays only grow when a frame contains more
+ * segments than ever before, so refilling the store for every frame does not allocate. Next to the segments, the store holds the statistics
+ * of the detection: the number of segments the Hough transform detected (before the slope filter) and the durations of the detection stages.
+ * <p>Instances are not thread safe.</p>
+ */
+public class LaneSegments {
+
+    private static final double MINIMAL_DELTA = 0.0000001;
+
+    private int frameWidth;
+    private int frameHeight;
+    private int count;
+    private int detectedCount;
+    private long blurNanos;
+    private long cannyNanos;
+    private long houghNanos;
+
+    private double[] x1;
+    private double[] y1;
+    private double[] x2;
+    private double[] y2;
+    private double[] inverseSlope;
+    private double[] length;
+
+    /**
+     * Creates a new, empty store.
+     * @param initialCapacity the number of segments the store can hold before it has to grow.
+     */
+    public LaneSegments(final int initialCapacity) {
+        final int capacity = Math.max(1, initialCapacity);
+        x1 = new double[capacity];
+        y1 = new double[capacity];
+        x2 = new double[capacity];
+        y2 = new double[capacity];
+        inverseSlope = new double[capacity];
+        length = new double[capacity];
+    }
+
+    /**
+     * Removes all segments and sets the size of the frame the next segments are detected in.
+     * @param frameWidth the width of the frame in pixels.
+     * @param frameHeight the height of the frame in pixels.
+     */
+    public void reset(final int frameWidth, final int frameHeight) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.count = 0;
+        this.detectedCount = 0;
+        this.blurNanos = 0;
+        this.cannyNanos = 0;
+        this.houghNanos = 0;
+    }
+
+    /**
+     * Sets the statistics of the detection of the segments in the store.
+     * @param detectedSegments the number of segments detected by the Hough transform, before the slope filter.
+     * @param blurDuration the duration of the blur stage (including the scaling, masking and gray conversion), in nanoseconds.
+     * @param cannyDuration the duration of the Canny stage, in nanoseconds.
+     * @param houghDuration the duration of the Hough stage (including the slope filter), in nanoseconds.
+     */
+    public void setDetectionStatistics(final int detectedSegments, final long blurDuration, final long cannyDuration, final long houghDuration) {
+        this.detectedCount = detectedSegments;
+        this.blurNanos = blurDuration;
+        this.cannyNanos = cannyDuration;
+        this.houghNanos = houghDuration;
+    }
+
+    /**
+     * Adds a segment, but only if the absolute value of its slope (the change in y per pixel in x) lies within the given boundaries.
+     * @return true when the segment was added.
+     */
+    public boolean addIfSlopeWithin(final double segmentX1, final double segmentY1, final double segmentX2, final double segmentY2,
+                                    final double minimalSlope, final double maximalSlope) {
+        final double deltaX = segmentX2 - segmentX1;
+        final double deltaY = segmentY2 - segmentY1;
+        final double absoluteSlope = Math.abs(deltaY) / Math.max(MINIMAL_DELTA, Math.abs(deltaX));
+        if (absoluteSlope < minimalSlope || absoluteSlope > maximalSlope) {
+            return false;
+        }
+
+        ensureCapacity(count + 1);
+        x1[count] = segmentX1;
+        y1[count] = segmentY1;
+        x2[count] = segmentX2;
+        y2[count] = segmentY2;
+        inverseSlope[count] = deltaX / (Math.abs(deltaY) < MINIMAL_DELTA ? Math.copySign(MINIMAL_DELTA, deltaY) : deltaY);
+        length[count] = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        count++;
+        return true;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of segments detected by the Hough transform, including the ones that were filtered out by their slope.
+     */
+    public int getDetectedCount() {
+        return detectedCount;
+    }
+
+    public long getBlurNanos() {
+        return blurNanos;
+    }
+
+    public long getCannyNanos() {
+        return cannyNanos;
+    }
+
+    public long getHoughNanos() {
+        return houghNanos;
+    }
+
+    public double getX1(final int index) {
+        return x1[index];
+    }
+
+    public double getY1(final int index) {
+        return y1[index];
+    }
+
+    public double getX2(final int index) {
+        return x2[index];
+    }
+
+    public double getY2(final int index) {
+        return y2[index];
+    }
+
+    /**
+     * Returns the change in x per pixel in y of the segment; negative for segments that lean to the right going up in the image (the
+     * typical left lane line) and positive for segments that lean to the left (the typical right lane line).
+     */
+    public double getInverseSlope(final int index) {
+        return inverseSlope[index];
+    }
+
+    public double getLength(final int index) {
+        return length[index];
+    }
+
+    /**
+     * Returns the x coordinate of the (extended) segment at the given y coordinate.
+     */
+    public double getXAt(final int index, final double y) {
+        return x1[index] + (y - y1[index]) * inverseSlope[index];
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= x1.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, x1.length * 2);
+        x1 = Arrays.copyOf(x1, newCapacity);
+        y1 = Arrays.copyOf(y1, newCapacity);
+        x2 = Arrays.copyOf(x2, newCapacity);
+        y2 = Arrays.copyOf(y2, newCapacity);
+        inverseSlope = Arrays.copyOf(inverseSlope, newCapacity);
+        length = Arrays.copyOf(length, newCapacity);
+    }
+}
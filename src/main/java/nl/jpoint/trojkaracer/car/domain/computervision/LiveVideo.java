@@ -0,0 +1,263 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Live video of what the car sees: the frames, annotated with the detected lane segments and the steering decision, encoded as JPEG images.
+ * <p>The navigator only hands over its latest frame while someone is watching (see {@link #isWatched()}), so the video costs nothing when
+ * there are no viewers. The frames are annotated and encoded on a single, low priority thread, at most at the configured frame rate. Every
+ * viewer skips frames while it has not requested a new image (backpressure), and the JPEG quality of every viewer adapts to it: it drops with
+ * every skipped frame and recovers with every image that was sent without skipping.</p>
+ * <p>The latest frame is retained until it is replaced or the last viewer leaves, and while it is being encoded (see
+ * {@link Frame#retain()}).</p>
+ * <p>A disabled live video never has viewers and never starts a thread.</p>
+ */
+public class LiveVideo {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String JPEG_EXTENSION = ".jpg";
+    private static final Scalar STEERING_COLOR = new Scalar(0, 255, 0);
+    private static final int QUALITY_STEP = 10;
+    private static final double STEERING_LINE_LENGTH_PERCENTAGE = 0.3;
+    private static final int STEERING_LINE_THICKNESS = 3;
+    private static final double TEXT_SCALE = 0.6;
+    private static final Point TEXT_POSITION = new Point(10, 25);
+
+    private final ComputerVisionHelper computerVisionHelper;
+    private final boolean enabled;
+    private final Duration frameInterval;
+    private final int minQuality;
+    private final int maxQuality;
+    private final Scheduler encoderScheduler;
+    private final AtomicInteger viewers = new AtomicInteger(0);
+    private final AtomicReference<AnnotatedFrame> latestFrame = new AtomicReference<>();
+
+    /**
+     * Creates a new (enabled) live video.
+     * @param computerVisionHelper the helper providing the parameters to draw the lane segments with.
+     * @param maxFramesPerSecond the maximum number of images to encode per second, for every viewer.
+     * @param minQuality the lowest JPEG quality (0-100), used for viewers that cannot keep up.
+     * @param maxQuality the highest JPEG quality (0-100), used for viewers that keep up.
+     */
+    public LiveVideo(final ComputerVisionHelper computerVisionHelper, final int maxFramesPerSecond, final int minQuality, final int maxQuality) {
+        this(computerVisionHelper, true, maxFramesPerSecond, minQuality, maxQuality);
+    }
+
+    private LiveVideo(final ComputerVisionHelper computerVisionHelper,
+                      final boolean enabled,
+                      final int maxFramesPerSecond,
+                      final int minQuality,
+                      final int maxQuality) {
+        if (enabled && (maxFramesPerSecond < 1 || minQuality < 0 || maxQuality > 100 || minQuality > maxQuality)) {
+            throw new IllegalArgumentException(String.format("Invalid live video settings (maxFramesPerSecond: %s, minQuality: %s, maxQuality: %s)",
+                    maxFramesPerSecond, minQuality, maxQuality));
+        }
+
+        this.computerVisionHelper = computerVisionHelper;
+        this.enabled = enabled;
+        this.frameInterval = enabled ? Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond) : Duration.ZERO;
+        this.minQuality = minQuality;
+        this.maxQuality = maxQuality;
+        // A scheduled executor, as the images are encoded on a periodic interval (see getImages())
+        this.encoderScheduler = enabled ? Schedulers.fromExecutorService(Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "live-video-encoder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        })) : null;
+    }
+
+    /**
+     * Returns a live video that never has any viewers.
+     * @return a live video that never has any viewers.
+     */
+    public static LiveVideo disabled() {
+        return new LiveVideo(null, false, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether anyone is watching; the navigator only submits frames while this is the case.
+     */
+    public boolean isWatched() {
+        return viewers.get() > 0;
+    }
+
+    /**
+     * Submits the latest navigated frame, replacing the previous one if that was not encoded yet. Only call this while the video is watched;
+     * the frame is retained and the segments are copied, so the store can be reused right after this call.
+     * @param frame the navigated frame.
+     * @param laneSegments the lane segments detected in the frame.
+     * @param steeringDegrees the steering decision for the frame.
+     * @param confidence the confidence of the lane tracking.
+     */
+    public void submit(final Frame frame, final LaneSegments laneSegments, final int steeringDegrees, final double confidence) {
+        final int[] segments = new int[laneSegments.size() * 4];
+        for (int i = 0; i < laneSegments.size(); i++) {
+            segments[i * 4] = (int) laneSegments.getX1(i);
+            segments[i * 4 + 1] = (int) laneSegments.getY1(i);
+            segments[i * 4 + 2] = (int) laneSegments.getX2(i);
+            segments[i * 4 + 3] = (int) laneSegments.getY2(i);
+        }
+        if (frame.retain()) {
+            release(latestFrame.getAndSet(new AnnotatedFrame(frame, segments, steeringDegrees, confidence)));
+        }
+    }
+
+    /**
+     * Returns the JPEG images of the live video, for a single viewer. The video is watched as long as the returned flux is subscribed to.
+     * @return the JPEG images of the live video.
+     */
+    public Flux<byte[]> getImages() {
+        if (!enabled) {
+            return Flux.empty();
+        }
+
+        return Flux.defer(() -> {
+            final ViewerState viewer = new ViewerState(maxQuality);
+            if (viewers.incrementAndGet() == 1) {
+                LOGGER.info("Started the live video.");
+            }
+
+            return Flux.interval(frameInterval, encoderScheduler)
+                    .onBackpressureDrop(tick -> viewer.skipped())
+                    .map(tick -> encodeNextFrame(viewer))
+                    .filter(image -> image.length > 0)
+                    .doFinally(signal -> {
+                        if (viewers.decrementAndGet() == 0) {
+                            release(latestFrame.getAndSet(null));
+                            LOGGER.info("Stopped the live video.");
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Stops the encoder thread; all viewers stop receiving images.
+     */
+    public void stop() {
+        if (enabled) {
+            encoderScheduler.dispose();
+        }
+    }
+
+    private byte[] encodeNextFrame(final ViewerState viewer) {
+        final AnnotatedFrame annotatedFrame = latestFrame.get();
+        if (annotatedFrame == null || annotatedFrame.frame.getSequenceNumber() == viewer.lastSequenceNumber) {
+            return new byte[0];
+        }
+        // The frame may be replaced (and released) by the navigator while it is encoded
+        if (!annotatedFrame.frame.retain()) {
+            return new byte[0];
+        }
+        viewer.lastSequenceNumber = annotatedFrame.frame.getSequenceNumber();
+
+        final Mat image = annotatedFrame.frame.getImage();
+        final Mat annotatedImage = new Mat();
+        final MatOfByte jpeg = new MatOfByte();
+        try {
+            if (image.channels() == 1) {
+                computerVisionHelper.convertGrayScaleToBGRColor(image, annotatedImage);
+            } else {
+                image.copyTo(annotatedImage);
+            }
+            annotate(annotatedImage, annotatedFrame);
+            Imgcodecs.imencode(JPEG_EXTENSION, annotatedImage, jpeg, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, viewer.nextQuality(minQuality, maxQuality)));
+            return jpeg.toArray();
+        } finally {
+            annotatedImage.release();
+            jpeg.release();
+            annotatedFrame.frame.release();
+        }
+    }
+
+    private static void release(final AnnotatedFrame annotatedFrame) {
+        if (annotatedFrame != null) {
+            annotatedFrame.frame.release();
+        }
+    }
+
+    private void annotate(final Mat image, final AnnotatedFrame annotatedFrame) {
+        final ComputerVisionParameterSet parameters = computerVisionHelper.getParameters();
+        final int[] segments = annotatedFrame.segments;
+        for (int i = 0; i < segments.length; i += 4) {
+            Imgproc.line(image, new Point(segments[i], segments[i + 1]), new Point(segments[i + 2], segments[i + 3]),
+                    parameters.getDrawLineColor(), parameters.getDrawLineThickness());
+        }
+
+        final double steeringRadians = Math.toRadians(annotatedFrame.steeringDegrees);
+        final double length = image.rows() * STEERING_LINE_LENGTH_PERCENTAGE;
+        final Point bottomCentre = new Point(image.cols() / 2.0, image.rows());
+        Imgproc.line(image, bottomCentre,
+                new Point(bottomCentre.x + length * Math.sin(steeringRadians), bottomCentre.y - length * Math.cos(steeringRadians)),
+                STEERING_COLOR, STEERING_LINE_THICKNESS);
+        Imgproc.putText(image, String.format("#%d steering %d confidence %.2f", annotatedFrame.frame.getSequenceNumber(),
+                annotatedFrame.steeringDegrees, annotatedFrame.confidence), TEXT_POSITION, Imgproc.FONT_HERSHEY_SIMPLEX, TEXT_SCALE,
+                STEERING_COLOR);
+    }
+
+    /**
+     * A navigated frame with its annotations.
+     */
+    private static final class AnnotatedFrame {
+        private final Frame frame;
+        private final int[] segments;
+        private final int steeringDegrees;
+        private final double confidence;
+
+        private AnnotatedFrame(final Frame frame, final int[] segments, final int steeringDegrees, final double confidence) {
+            this.frame = frame;
+            this.segments = segments;
+            this.steeringDegrees = steeringDegrees;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * The state of a single viewer: the last frame sent to it and its current JPEG quality.
+     */
+    private static final class ViewerState {
+        private volatile boolean skippedSinceLastImage;
+        private long lastSequenceNumber = -1;
+        private int quality;
+
+        private ViewerState(final int quality) {
+            this.quality = quality;
+        }
+
+        private void skipped() {
+            skippedSinceLastImage = true;
+        }
+
+        private int nextQuality(final int minQuality, final int maxQuality) {
+            if (skippedSinceLastImage) {
+                skippedSinceLastImage = false;
+                quality = Math.max(minQuality, quality - QUALITY_STEP);
+            } else {
+                quality = Math.min(maxQuality, quality + QUALITY_STEP);
+            }
+            return quality;
+        }
+    }
+}
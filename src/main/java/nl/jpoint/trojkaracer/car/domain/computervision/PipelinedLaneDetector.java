@@ -0,0 +1,142 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BiFunction;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.StageStatistics;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs the lane detection of the {@link ComputerVisionHelper} pipelined: the three stages (mask and blur, Canny, Hough and the handling of
+ * the detected segments) each run on a thread of their own, so while frame k is in the Hough stage, frame k+1 is in the Canny stage and
+ * frame k+2 is being blurred.
+ * <p>The stages are connected by bounded single-producer/single-consumer queues of a single frame (the queues of Reactor's
+ * <code>publishOn</code>), so the frames leave the pipeline in the order they entered it, and every stage pulls a new frame as soon as it has
+ * handed its previous frame over. Every frame travels through the stages with a {@link LaneDetectionWorkspace} of its own, taken from a
+ * pool that is large enough for all frames that can be in flight at the same time. The frames are retained while they travel through the
+ * stages (see {@link Frame#retain()}), and released after the handler was called for them.</p>
+ * <p>The depth of the queue and the occupancy of every stage are exposed through the {@link PipelineMetrics}.</p>
+ */
+public class PipelinedLaneDetector {
+
+    private static final int NUMBER_OF_STAGES = 3;
+    // Every stage holds at most one frame in its queue and one frame it is working on
+    private static final int WORKSPACE_POOL_SIZE = 2 * NUMBER_OF_STAGES + 1;
+
+    private final ComputerVisionHelper computerVisionHelper;
+    private final StageStatistics blurStatistics = new StageStatistics();
+    private final StageStatistics cannyStatistics = new StageStatistics();
+    private final StageStatistics houghStatistics = new StageStatistics();
+
+    public PipelinedLaneDetector(final ComputerVisionHelper computerVisionHelper, final PipelineMetrics pipelineMetrics) {
+        this.computerVisionHelper = computerVisionHelper;
+
+        pipelineMetrics.register("vision.blur", blurStatistics);
+        pipelineMetrics.register("vision.canny", cannyStatistics);
+        pipelineMetrics.register("vision.hough", houghStatistics);
+    }
+
+    /**
+     * Detects the lane segments in the frames, pipelined. The handler is called on the thread of the last stage, for every frame in order,
+     * with the segments detected in that frame; the segments are only valid during the call of the handler.
+     * <p>Every subscription to the returned flux starts threads and workspaces of its own, which are released when the subscription ends.</p>
+     * @param frames the frames to detect the lane segments in.
+     * @param handler the handler of the detected segments.
+     * @param <R> the type of the result of the handler.
+     * @return the results of the handler, in the order of the frames.
+     */
+    public <R> Flux<R> detect(final Flux<Frame> frames, final BiFunction<Frame, LaneSegments, R> handler) {
+        return detect(frames, new LaneSearchWindows(), handler);
+    }
+
+    /**
+     * Detects the lane segments in the frames, pipelined, like {@link #detect(Flux, BiFunction)}, but only within the given search windows.
+     * The windows are read by the last stage, on the thread the handler is called on, so a handler can safely update the windows for the
+     * next frame.
+     * @param frames the frames to detect the lane segments in.
+     * @param searchWindows the windows to search the lane lines in.
+     * @param handler the handler of the detected segments.
+     * @param <R> the type of the result of the handler.
+     * @return the results of the handler, in the order of the frames.
+     */
+    public <R> Flux<R> detect(final Flux<Frame> frames,
+                              final LaneSearchWindows searchWindows,
+                              final BiFunction<Frame, LaneSegments, R> handler) {
+        return Flux.defer(() -> {
+            final Scheduler blurScheduler = Schedulers.newSingle("vision-blur");
+            final Scheduler cannyScheduler = Schedulers.newSingle("vision-canny");
+            final Scheduler houghScheduler = Schedulers.newSingle("vision-hough");
+            final BlockingQueue<LaneDetectionWorkspace> workspaces = new ArrayBlockingQueue<>(WORKSPACE_POOL_SIZE);
+
+            return frames
+                    .filter(Frame::retain)
+                    .doOnNext(frame -> blurStatistics.enqueued())
+                    .publishOn(blurScheduler, 1)
+                    .map(frame -> {
+                        final long start = blurStatistics.started();
+                        final LaneDetectionWorkspace workspace = acquire(workspaces);
+                        computerVisionHelper.blurLaneImage(frame.getImage(), workspace, computerVisionHelper.getParameters());
+                        blurStatistics.finished(start);
+
+                        cannyStatistics.enqueued();
+                        return new InFlightFrame(frame, workspace);
+                    })
+                    .publishOn(cannyScheduler, 1)
+                    .map(inFlightFrame -> {
+                        final long start = cannyStatistics.started();
+                        computerVisionHelper.detectEdges(inFlightFrame.workspace);
+                        cannyStatistics.finished(start);
+
+                        houghStatistics.enqueued();
+                        return inFlightFrame;
+                    })
+                    .publishOn(houghScheduler, 1)
+                    .map(inFlightFrame -> {
+                        final long start = houghStatistics.started();
+                        try {
+                            return handler.apply(inFlightFrame.frame,
+                                    computerVisionHelper.detectLaneSegments(inFlightFrame.workspace, searchWindows));
+                        } finally {
+                            inFlightFrame.frame.release();
+                            release(workspaces, inFlightFrame.workspace);
+                            houghStatistics.finished(start);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        blurScheduler.dispose();
+                        cannyScheduler.dispose();
+                        houghScheduler.dispose();
+                        workspaces.forEach(LaneDetectionWorkspace::release);
+                        workspaces.clear();
+                    });
+        });
+    }
+
+    private static LaneDetectionWorkspace acquire(final BlockingQueue<LaneDetectionWorkspace> workspaces) {
+        final LaneDetectionWorkspace workspace = workspaces.poll();
+        return workspace != null ? workspace : new LaneDetectionWorkspace();
+    }
+
+    private static void release(final BlockingQueue<LaneDetectionWorkspace> workspaces, final LaneDetectionWorkspace workspace) {
+        if (!workspaces.offer(workspace)) {
+            workspace.release();
+        }
+    }
+
+    /**
+     * A frame on its way through the stages, together with the workspace holding its intermediate results.
+     */
+    private static final class InFlightFrame {
+        private final Frame frame;
+        private final LaneDetectionWorkspace workspace;
+
+        private InFlightFrame(final Frame frame, final LaneDetectionWorkspace workspace) {
+            this.frame = frame;
+            this.workspace = workspace;
+        }
+    }
+}
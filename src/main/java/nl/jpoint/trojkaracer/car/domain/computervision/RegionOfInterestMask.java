@@ -0,0 +1,153 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import java.util.Collections;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cached, rasterised mask of the Region of Interest (ROI). The mask only covers the bounding rectangle of the ROI polygon (see
+ * {@link #getBounds()}), so it is meant to be applied to a crop (submat) of the frame with these bounds; everything outside of it is not
+ * processed at all. The ROI polygon is only drawn again when the frame size or type, or one of the ROI parameters changes; every other frame
+ * reuses the mask as is.
+ * <p>Instances are not thread safe; each {@link LaneDetectionWorkspace} holds a mask of its own.</p>
+ */
+class RegionOfInterestMask {
+
+    private final Mat mask = new Mat();
+    private Rect bounds = new Rect();
+
+    private int width = -1;
+    private int height = -1;
+    private int type = -1;
+    private double xOffsetPercentage;
+    private double yTopPercentage;
+    private double yMiddlePercentage;
+    private double yBottomPercentage;
+
+    /**
+     * Returns the mask of the ROI bounds for images with the size and type of the provided image and the provided ROI parameters. The mask is
+     * only rasterised when it is not cached yet for these values.
+     * @param image an image that defines the size, type and amount of channels to use in the mask.
+     * @param xOffsetPercentage the horizontal offset of the top corners of the ROI, as a fraction of the image width.
+     * @param yTopPercentage the top of the ROI, as a fraction of the image height.
+     * @param yMiddlePercentage the height at which the ROI is at its widest, as a fraction of the image height.
+     * @param yBottomPercentage the bottom of the ROI, as a fraction of the image height.
+     * @return the (cached) mask image, with the size of the ROI bounds.
+     */
+    Mat get(final Mat image,
+            final double xOffsetPercentage,
+            final double yTopPercentage,
+            final double yMiddlePercentage,
+            final double yBottomPercentage) {
+
+        if (image.cols() != width || image.rows() != height || image.type() != type
+                || xOffsetPercentage != this.xOffsetPercentage
+                || yTopPercentage != this.yTopPercentage
+                || yMiddlePercentage != this.yMiddlePercentage
+                || yBottomPercentage != this.yBottomPercentage) {
+
+            rasterise(image, xOffsetPercentage, yTopPercentage, yMiddlePercentage, yBottomPercentage);
+
+            this.width = image.cols();
+            this.height = image.rows();
+            this.type = image.type();
+            this.xOffsetPercentage = xOffsetPercentage;
+            this.yTopPercentage = yTopPercentage;
+            this.yMiddlePercentage = yMiddlePercentage;
+            this.yBottomPercentage = yBottomPercentage;
+        }
+
+        return mask;
+    }
+
+    /**
+     * Returns the bounding rectangle of the ROI (within the image) the last returned mask applies to.
+     * @return the bounding rectangle of the ROI.
+     */
+    Rect getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Releases the native memory of the mask; the next call to {@link #get(Mat, double, double, double, double)} will rasterise it again.
+     */
+    void release() {
+        mask.release();
+        width = -1;
+        height = -1;
+        type = -1;
+    }
+
+    private void rasterise(final Mat image,
+                           final double xOffsetPercentage,
+                           final double yTopPercentage,
+                           final double yMiddlePercentage,
+                           final double yBottomPercentage) {
+
+        final Point[] points = getROIPoints(image.size(), xOffsetPercentage, yTopPercentage, yMiddlePercentage, yBottomPercentage);
+        bounds = getBounds(points, image.cols(), image.rows());
+
+        final MatOfPoint polygon = new MatOfPoint(points);
+        mask.create(bounds.height, bounds.width, image.type());
+        mask.setTo(Scalar.all(0));
+        Imgproc.fillPoly(mask, Collections.singletonList(polygon), Scalar.all(255), Imgproc.LINE_8, 0, new Point(-bounds.x, -bounds.y));
+
+        polygon.release();
+    }
+
+    /**
+     * Returns the bounding rectangle of the points, clipped to the image (and at least a single pixel in size).
+     */
+    private static Rect getBounds(final Point[] points, final int imageWidth, final int imageHeight) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (final Point point : points) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+
+        final int left = Math.max(0, Math.min(imageWidth - 1, (int) minX));
+        final int top = Math.max(0, Math.min(imageHeight - 1, (int) minY));
+        final int right = Math.max(left + 1, Math.min(imageWidth, (int) Math.ceil(maxX) + 1));
+        final int bottom = Math.max(top + 1, Math.min(imageHeight, (int) Math.ceil(maxY) + 1));
+        return new Rect(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Returns the Region of Interest as an array of {@link Point}s.
+     * @param size the size of the image to which the ROI applies.
+     * @return an array of Points that together make up the ROI.
+     */
+    static Point[] getROIPoints(final Size size,
+                                final double xOffsetPercentage,
+                                final double yTopPercentage,
+                                final double yMiddlePercentage,
+                                final double yBottomPercentage) {
+
+        final int xOffset = (int) (size.width * xOffsetPercentage);
+
+        final int xLeft = xOffset;
+        final int xRight = (int) size.width - xOffset;
+        final int yTop = (int) (size.height * yTopPercentage);
+        final int yMiddle = (int) (size.height * yMiddlePercentage);
+        final int yBottom = (int) (size.height * yBottomPercentage);
+
+        return new Point[] {
+                new Point(0, yBottom),
+                new Point(0, yMiddle),
+                new Point(xLeft, yTop),
+                new Point(xRight, yTop),
+                new Point(size.width, yMiddle),
+                new Point(size.width, yBottom)
+        };
+    }
+}
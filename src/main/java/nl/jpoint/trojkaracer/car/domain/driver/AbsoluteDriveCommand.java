@@ -1,21 +1,34 @@
 package nl.jpoint.trojkaracer.car.domain.driver;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 import nl.jpoint.trojkaracer.car.domain.car.Car;
 import nl.jpoint.trojkaracer.car.domain.car.Direction;
 import nl.jpoint.trojkaracer.car.domain.car.Speed;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
 
 /**
  * Drive command containing absolute direction and speed values. This command could be used to directly control the car.
  */
-@Value(staticConstructor = "of")
+@Value
+@AllArgsConstructor(staticName = "of")
 public class AbsoluteDriveCommand implements DriveCommand {
 
     final Speed speed;
     final Direction direction;
 
+    /**
+     * The capture timestamp of the frame this command was based on, or {@link PipelineMetrics#NO_TIMESTAMP} when it is not based on a
+     * frame.
+     */
+    final long captureTimestamp;
+
+    public static AbsoluteDriveCommand of(final Speed speed, final Direction direction) {
+        return of(speed, direction, PipelineMetrics.NO_TIMESTAMP);
+    }
+
     @Override
     public void applyCommandOnCar(final Car car) {
-        car.drive(speed, direction);
+        car.drive(speed, direction, captureTimestamp);
     }
 }
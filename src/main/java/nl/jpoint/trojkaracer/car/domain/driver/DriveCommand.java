@@ -1,6 +1,7 @@
 package nl.jpoint.trojkaracer.car.domain.driver;
 
 import nl.jpoint.trojkaracer.car.domain.car.Car;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
 
 /**
  * Command to drive the car. This command can be applied to the car, driving the car to a certain speed and direction.
@@ -12,4 +13,12 @@ public interface DriveCommand {
      * @param car the car to apply the command to.
      */
     void applyCommandOnCar(Car car);
+
+    /**
+     * Returns the capture timestamp of the frame this command was based on.
+     * @return the capture timestamp, or {@link PipelineMetrics#NO_TIMESTAMP} when the command is not based on a frame.
+     */
+    default long getCaptureTimestamp() {
+        return PipelineMetrics.NO_TIMESTAMP;
+    }
 }
@@ -0,0 +1,67 @@
+package nl.jpoint.trojkaracer.car.domain.finisher;
+
+import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
+import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Implementation of the {@link Finisher} interface; it signals the finish as soon as the finish line (a checkered or light strip across the
+ * track) has been seen near the bottom of a number of consecutive frames. The frames are scanned with a {@link FinishLineScanner}, which
+ * only samples a few rows, so the finisher fits in a small fixed budget per frame next to the navigator. It consumes the shared frames of
+ * the view publisher, the same frames the navigator sees.
+ */
+public class FinishLineFinisher implements Finisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final int DEFAULT_CONFIRMATION_FRAMES = 2;
+
+    private final Flux<Boolean> finishedPublisher;
+
+    public FinishLineFinisher(final Flux<Frame> viewPublisher, final PipelineMetrics pipelineMetrics) {
+        this(viewPublisher, pipelineMetrics, DEFAULT_CONFIRMATION_FRAMES);
+    }
+
+    /**
+     * Creates a new finisher.
+     * @param viewPublisher the frames to look for the finish line in.
+     * @param pipelineMetrics the metrics to record the duration of scanning a frame in.
+     * @param confirmationFrames the number of consecutive frames the finish line has to be seen in.
+     */
+    public FinishLineFinisher(final Flux<Frame> viewPublisher, final PipelineMetrics pipelineMetrics, final int confirmationFrames) {
+        if (confirmationFrames < 1) {
+            throw new IllegalArgumentException(String.format("At least one confirmation frame is required (confirmationFrames: %s)",
+                    confirmationFrames));
+        }
+
+        // Every subscription (every race) starts with a scanner of its own
+        finishedPublisher = Flux.defer(() -> {
+            final FinishLineScanner finishLineScanner = new FinishLineScanner();
+            final int[] consecutiveFrames = { 0 };
+
+            return Flux.from(viewPublisher)
+                    .filter(frame -> {
+                        final long start = System.nanoTime();
+                        final boolean visible = finishLineScanner.isFinishLineVisible(frame.getImage());
+                        pipelineMetrics.recordSince(Stage.FINISH_LINE, start);
+
+                        consecutiveFrames[0] = visible ? consecutiveFrames[0] + 1 : 0;
+                        return consecutiveFrames[0] >= confirmationFrames;
+                    })
+                    .take(1)
+                    .map(frame -> {
+                        LOGGER.info("{} detected the finish line in frame {}.", getClass().getSimpleName(), frame.getSequenceNumber());
+                        return Boolean.TRUE;
+                    });
+        });
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Boolean> s) {
+        finishedPublisher.subscribe(s);
+    }
+}
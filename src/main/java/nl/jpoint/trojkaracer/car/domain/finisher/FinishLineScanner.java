@@ -0,0 +1,97 @@
+package nl.jpoint.trojkaracer.car.domain.finisher;
+
+import org.opencv.core.Mat;
+
+/**
+ * Looks for the finish line in a frame by scanning a few rows near the bottom of the frame, without any image processing pipeline. Every row
+ * is copied out of the frame in one bulk copy and a fixed number of pixels is sampled from it in a single pass over the primitive array, so
+ * the cost per frame is small and does not grow with the resolution. A row crosses the finish line when it shows either
+ * <ul>
+ *     <li>a checkered pattern: many transitions between dark and light pixels (lane lines only cause a few), or</li>
+ *     <li>a light strip: light pixels over most of the width of the row (lane lines only cover a small part).</li>
+ * </ul>
+ * <p>Works on BGR frames as well as single channel (luma only) frames. Instances are not thread safe.</p>
+ */
+class FinishLineScanner {
+
+    private static final double[] ROW_PERCENTAGES = { 0.8, 0.85, 0.9, 0.95 };
+    private static final int MIN_MATCHING_ROWS = 2;
+    private static final int MAX_SAMPLES_PER_ROW = 160;
+    private static final int DARK_MAX = 80;
+    private static final int LIGHT_MIN = 170;
+    private static final int MIN_TRANSITIONS = 8;
+    private static final double MIN_LIGHT_COVERAGE = 0.6;
+
+    private static final int UNKNOWN = 0;
+    private static final int DARK = 1;
+    private static final int LIGHT = 2;
+
+    private byte[] rowBuffer = new byte[0];
+
+    /**
+     * Returns whether the finish line is visible near the bottom of the image.
+     * @param image the image to scan.
+     * @return whether the finish line is visible near the bottom of the image.
+     */
+    boolean isFinishLineVisible(final Mat image) {
+        if (image.empty()) {
+            return false;
+        }
+
+        final int channels = image.channels();
+        final int rowSize = image.cols() * channels;
+        if (rowBuffer.length < rowSize) {
+            rowBuffer = new byte[rowSize];
+        }
+
+        int matchingRows = 0;
+        for (final double rowPercentage : ROW_PERCENTAGES) {
+            image.get((int) (image.rows() * rowPercentage), 0, rowBuffer);
+            if (isFinishLineRow(rowBuffer, image.cols(), channels)) {
+                matchingRows++;
+            }
+        }
+        return matchingRows >= MIN_MATCHING_ROWS;
+    }
+
+    /**
+     * Returns whether the row of pixels crosses the finish line.
+     * @param row the pixels of the row (8 bits per channel; BGR or a single luma channel).
+     * @param width the number of pixels in the row.
+     * @param channels the number of channels per pixel.
+     * @return whether the row crosses the finish line.
+     */
+    static boolean isFinishLineRow(final byte[] row, final int width, final int channels) {
+        final int step = Math.max(1, width / MAX_SAMPLES_PER_ROW);
+
+        int samples = 0;
+        int lightSamples = 0;
+        int transitions = 0;
+        int previousClass = UNKNOWN;
+        for (int x = 0; x < width; x += step) {
+            final int luma = luma(row, x * channels, channels);
+            final int sampleClass = luma <= DARK_MAX ? DARK : luma >= LIGHT_MIN ? LIGHT : UNKNOWN;
+            if (sampleClass == LIGHT) {
+                lightSamples++;
+            }
+            if (sampleClass != UNKNOWN) {
+                if (previousClass != UNKNOWN && sampleClass != previousClass) {
+                    transitions++;
+                }
+                previousClass = sampleClass;
+            }
+            samples++;
+        }
+        return transitions >= MIN_TRANSITIONS || lightSamples >= samples * MIN_LIGHT_COVERAGE;
+    }
+
+    /**
+     * Returns the (approximated) luma of the pixel at the given offset: the pixel itself for single channel images, (B + 2G + R) / 4 for BGR.
+     */
+    private static int luma(final byte[] row, final int offset, final int channels) {
+        if (channels < 3) {
+            return row[offset] & 0xFF;
+        }
+        return ((row[offset] & 0xFF) + 2 * (row[offset + 1] & 0xFF) + (row[offset + 2] & 0xFF)) >> 2;
+    }
+}
@@ -0,0 +1,148 @@
+package nl.jpoint.trojkaracer.car.domain.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency metrics of the frame to wheel pipeline: a timer per {@link Stage} and the end-to-end "glass-to-wheel" latency, from the moment a
+ * frame was captured until the resulting drive command has been written to the engine. All timers publish their median, 95th and 99th
+ * percentile (as the <code>phi</code> tagged meters with the <code>.percentile</code> suffix) next to their count, total and max.
+ * <p>Stages that run pipelined, on threads of their own, additionally expose the depth of their input queue and their occupancy as gauges
+ * (see {@link #register(String, StageStatistics)}).</p>
+ * <p>All durations are measured with {@link System#nanoTime()}, the clock frames are stamped with as well.</p>
+ */
+public class PipelineMetrics {
+
+    /**
+     * The timestamp of navigation directions and drive commands that do not originate from a captured frame.
+     */
+    public static final long NO_TIMESTAMP = 0;
+
+    static final String STAGE_TIMER_NAME = "trojkaracer.pipeline.stage";
+    static final String GLASS_TO_WHEEL_TIMER_NAME = "trojkaracer.pipeline.glass.to.wheel";
+    static final String START_REACTION_TIMER_NAME = "trojkaracer.start.reaction";
+    static final String QUEUE_DEPTH_GAUGE_NAME = "trojkaracer.pipeline.queue.depth";
+    static final String OCCUPANCY_GAUGE_NAME = "trojkaracer.pipeline.stage.occupancy";
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer glassToWheelTimer;
+    private final Timer startReactionTimer;
+
+    /**
+     * Creates the pipeline metrics and registers all its timers in the given registry.
+     * @param meterRegistry the registry to register the timers in.
+     */
+    public PipelineMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (final Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder(STAGE_TIMER_NAME)
+                    .description("Duration of a single stage of the frame to wheel pipeline")
+                    .tag("stage", stage.getTagValue())
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry));
+        }
+        glassToWheelTimer = Timer.builder(GLASS_TO_WHEEL_TIMER_NAME)
+                .description("Duration from the capture of a frame until the resulting drive command has been written to the engine")
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+        startReactionTimer = Timer.builder(START_REACTION_TIMER_NAME)
+                .description("Duration from the capture of the first frame in which the start light was off until the start signal was given")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns pipeline metrics that are not registered anywhere; for the components that are created outside of the Spring context.
+     * @return pipeline metrics that are not registered anywhere.
+     */
+    public static PipelineMetrics noop() {
+        return new PipelineMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Records the duration of a stage that started at the given moment and ended now.
+     * @param stage the stage to record the duration of.
+     * @param startTimestamp the start of the stage, as returned by {@link System#nanoTime()}.
+     * @return the current moment, as returned by {@link System#nanoTime()}, so it can be used as start of the next stage.
+     */
+    public long recordSince(final Stage stage, final long startTimestamp) {
+        final long now = System.nanoTime();
+        stageTimers.get(stage).record(now - startTimestamp, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /**
+     * Records the glass-to-wheel latency of a frame that was captured at the given moment and of which the resulting drive command has just
+     * been written to the engine.
+     * @param captureTimestamp the moment the frame was captured, as returned by {@link System#nanoTime()}; drive commands not originating
+     *                         from a frame (with a timestamp of {@link #NO_TIMESTAMP}) are ignored.
+     */
+    public void recordGlassToWheel(final long captureTimestamp) {
+        if (captureTimestamp != NO_TIMESTAMP) {
+            glassToWheelTimer.record(System.nanoTime() - captureTimestamp, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the reaction time to the start signal: from the capture of the first frame in which the start light was seen off until now,
+     * the moment the start signal is given.
+     * @param lightOffCaptureTimestamp the capture timestamp of the first frame in which the start light was seen off.
+     * @return the reaction time in nanoseconds.
+     */
+    public long recordStartReaction(final long lightOffCaptureTimestamp) {
+        final long reactionNanos = System.nanoTime() - lightOffCaptureTimestamp;
+        startReactionTimer.record(reactionNanos, TimeUnit.NANOSECONDS);
+        return reactionNanos;
+    }
+
+    /**
+     * Registers the queue depth and occupancy gauges of a stage that runs pipelined. The gauges only hold a weak reference to the statistics,
+     * so the owner of the statistics should keep them for as long as the stage exists.
+     * @param stageName the name of the stage, used as the <code>stage</code> tag of the gauges.
+     * @param stageStatistics the statistics of the stage.
+     */
+    public void register(final String stageName, final StageStatistics stageStatistics) {
+        Gauge.builder(QUEUE_DEPTH_GAUGE_NAME, stageStatistics, StageStatistics::getQueueDepth)
+                .description("Number of frames waiting in the queue of a pipelined stage")
+                .tag("stage", stageName)
+                .register(meterRegistry);
+        Gauge.builder(OCCUPANCY_GAUGE_NAME, stageStatistics, StageStatistics::getOccupancy)
+                .description("Fraction of time the thread of a pipelined stage was busy, since the previous measurement")
+                .tag("stage", stageName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stages of the frame to wheel pipeline.
+     */
+    public enum Stage {
+        CAPTURE("capture"),
+        ROI_MASK("roi.mask"),
+        GRAY("gray"),
+        BLUR("blur"),
+        CANNY("canny"),
+        SEARCH_WINDOWS("search.windows"),
+        HOUGH("hough"),
+        NAVIGATION("navigation"),
+        DRIVE_COMMAND("drive.command"),
+        ENGINE_UPDATE("engine.update"),
+        START_LIGHT("start.light"),
+        FINISH_LINE("finish.line");
+
+        private final String tagValue;
+
+        Stage(final String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
+}
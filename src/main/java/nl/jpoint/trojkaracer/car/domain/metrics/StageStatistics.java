@@ -0,0 +1,65 @@
+package nl.jpoint.trojkaracer.car.domain.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a single stage of a pipelined execution, in which every stage runs on a thread of its own and takes its input from a queue:
+ * the number of items waiting in the queue of the stage and the occupancy of the stage (the fraction of time its thread was busy).
+ * <p>The statistics are updated by the threads of the pipeline and read by the metrics registry; all methods are thread safe.</p>
+ */
+public class StageStatistics {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    private long lastReadTimestamp = System.nanoTime();
+    private long lastReadBusyNanos;
+
+    /**
+     * Registers that an item was put in the queue of the stage.
+     */
+    public void enqueued() {
+        queueDepth.incrementAndGet();
+    }
+
+    /**
+     * Registers that the stage took an item from its queue and started processing it.
+     * @return the moment the stage started, as returned by {@link System#nanoTime()}, to pass to {@link #finished(long)}.
+     */
+    public long started() {
+        queueDepth.decrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Registers that the stage finished processing an item.
+     * @param startTimestamp the moment the stage started processing the item, as returned by {@link #started()}.
+     */
+    public void finished(final long startTimestamp) {
+        busyNanos.addAndGet(System.nanoTime() - startTimestamp);
+    }
+
+    /**
+     * Returns the number of items waiting in the queue of the stage.
+     * @return the number of items waiting in the queue of the stage.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Returns the fraction of time (between 0 and 1) the stage was busy since the previous call of this method.
+     * @return the fraction of time the stage was busy since the previous call of this method.
+     */
+    public synchronized double getOccupancy() {
+        final long now = System.nanoTime();
+        final long currentBusyNanos = busyNanos.get();
+        final long elapsed = now - lastReadTimestamp;
+        final double occupancy = elapsed <= 0 ? 0 : Math.min(1d, (double) (currentBusyNanos - lastReadBusyNanos) / elapsed);
+
+        lastReadTimestamp = now;
+        lastReadBusyNanos = currentBusyNanos;
+        return occupancy;
+    }
+}
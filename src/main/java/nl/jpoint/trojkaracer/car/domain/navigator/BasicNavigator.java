@@ -1,29 +1,123 @@
 package nl.jpoint.trojkaracer.car.domain.navigator;
 
-import java.util.List;
+import nl.jpoint.trojkaracer.car.domain.Frame;
 import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
-import nl.jpoint.trojkaracer.car.domain.computervision.Line;
-import org.opencv.core.Mat;
-import org.opencv.core.Scalar;
+import nl.jpoint.trojkaracer.car.domain.computervision.DebugImageWriter;
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneDetectionWorkspace;
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneSegments;
+import nl.jpoint.trojkaracer.car.domain.computervision.LiveVideo;
+import nl.jpoint.trojkaracer.car.domain.computervision.PipelinedLaneDetector;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
+import nl.jpoint.trojkaracer.car.domain.telemetry.FrameTelemetry;
 import org.reactivestreams.Subscriber;
 import reactor.core.publisher.Flux;
 
 /**
- * The basic navigator.
+ * The basic navigator; it steers the car towards the centre of the lane, as detected in the frames of the view publisher. The lanes are
+ * tracked across frames (see {@link LaneTracker}): while both lanes are tracked, a frame is only searched around the predicted lanes, and the
+ * confidence of the tracking is passed on to the driver with the navigation directions.
+ * <p>By default the lane detection and the navigation run serially, on the thread delivering the frames. In pipelined mode the stages of the
+ * lane detection run on threads of their own (see {@link PipelinedLaneDetector}), and the navigation runs on the thread of the last stage;
+ * the frames are still navigated strictly in sequence. In that mode the navigation stage timer only covers the steering calculation.</p>
+ * <p>While the {@link LiveVideo} is watched, every navigated frame is handed over to it with its lane segments and steering decision; while
+ * the {@link FrameTelemetry} is active, the detection statistics and decision of every navigated frame are recorded in it.</p>
  */
 public class BasicNavigator implements Navigator {
 
     private final Flux<NavigationDirections> navigationDirectionsFlux;
 
-    public BasicNavigator(final Flux<Mat> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
-        this.navigationDirectionsFlux = Flux.from(viewPublisher)
-                .doOnNext(image -> {
-                    Mat colorOfInterestImage = computerVisionHelper.filterToColor(image, new Scalar(15, 5, 25), new Scalar(180, 250, 250));
-                    computerVisionHelper.writeImage(computerVisionHelper.addLanesToImage(computerVisionHelper.convertGrayScaleToBGRColor(colorOfInterestImage)), "lanes");
-                })
-                .map(computerVisionHelper::getLaneLines)
-                .map(computerVisionHelper::filterLines)
-                .map(this::navigateBetweenLines);
+    public BasicNavigator(final Flux<Frame> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
+        this(viewPublisher, computerVisionHelper, DebugImageWriter.disabled(), PipelineMetrics.noop());
+    }
+
+    public BasicNavigator(final Flux<Frame> viewPublisher,
+                          final ComputerVisionHelper computerVisionHelper,
+                          final DebugImageWriter debugImageWriter,
+                          final PipelineMetrics pipelineMetrics) {
+        this(viewPublisher, computerVisionHelper, debugImageWriter, pipelineMetrics, false);
+    }
+
+    public BasicNavigator(final Flux<Frame> viewPublisher,
+                          final ComputerVisionHelper computerVisionHelper,
+                          final DebugImageWriter debugImageWriter,
+                          final PipelineMetrics pipelineMetrics,
+                          final boolean pipelined) {
+        this(viewPublisher, computerVisionHelper, debugImageWriter, pipelineMetrics, pipelined, LiveVideo.disabled(), FrameTelemetry.noop());
+    }
+
+    public BasicNavigator(final Flux<Frame> viewPublisher,
+                          final ComputerVisionHelper computerVisionHelper,
+                          final DebugImageWriter debugImageWriter,
+                          final PipelineMetrics pipelineMetrics,
+                          final boolean pipelined,
+                          final LiveVideo liveVideo,
+                          final FrameTelemetry frameTelemetry) {
+        if (pipelined) {
+            this.navigationDirectionsFlux = pipelinedNavigationDirections(viewPublisher,
+                    new PipelinedLaneDetector(computerVisionHelper, pipelineMetrics), debugImageWriter, pipelineMetrics, liveVideo, frameTelemetry);
+            return;
+        }
+
+        // Every subscription gets a workspace of its own, so the buffers are never shared between two pipelines; it is released when the
+        // subscription ends
+        this.navigationDirectionsFlux = Flux.defer(() -> {
+            final LaneDetectionWorkspace workspace = new LaneDetectionWorkspace();
+            final LaneTracker laneTracker = new LaneTracker();
+            final LaneCentreCalculator laneCentreCalculator = new LaneCentreCalculator(laneTracker);
+
+            Flux<Frame> frames = Flux.from(viewPublisher);
+            if (debugImageWriter.isEnabled()) {
+                frames = frames.doOnNext(debugImageWriter::submit);
+            }
+
+            return frames.map(frame -> {
+                final long start = System.nanoTime();
+                final LaneSegments laneSegments = computerVisionHelper.detectLaneSegments(frame.getImage(), workspace,
+                        laneTracker.getSearchWindows());
+                final int steeringDegrees = laneCentreCalculator.calculateSteering(laneSegments);
+                final long navigationNanos = pipelineMetrics.recordSince(Stage.NAVIGATION, start) - start;
+
+                if (liveVideo.isWatched()) {
+                    liveVideo.submit(frame, laneSegments, steeringDegrees, laneTracker.getConfidence());
+                }
+                if (frameTelemetry.isActive()) {
+                    frameTelemetry.navigated(frame, laneSegments, navigationNanos, steeringDegrees, laneTracker.getConfidence());
+                }
+                return NavigationDirections.of(steeringDegrees, frame.getCaptureTimestamp(), laneTracker.getConfidence());
+            }).doFinally(signal -> workspace.release());
+        });
+    }
+
+    private static Flux<NavigationDirections> pipelinedNavigationDirections(final Flux<Frame> viewPublisher,
+                                                                            final PipelinedLaneDetector pipelinedLaneDetector,
+                                                                            final DebugImageWriter debugImageWriter,
+                                                                            final PipelineMetrics pipelineMetrics,
+                                                                            final LiveVideo liveVideo,
+                                                                            final FrameTelemetry frameTelemetry) {
+        return Flux.defer(() -> {
+            final LaneTracker laneTracker = new LaneTracker();
+            final LaneCentreCalculator laneCentreCalculator = new LaneCentreCalculator(laneTracker);
+
+            Flux<Frame> frames = Flux.from(viewPublisher);
+            if (debugImageWriter.isEnabled()) {
+                frames = frames.doOnNext(debugImageWriter::submit);
+            }
+
+            return pipelinedLaneDetector.detect(frames, laneTracker.getSearchWindows(), (frame, laneSegments) -> {
+                final long start = System.nanoTime();
+                final int steeringDegrees = laneCentreCalculator.calculateSteering(laneSegments);
+                final long navigationNanos = pipelineMetrics.recordSince(Stage.NAVIGATION, start) - start;
+
+                if (liveVideo.isWatched()) {
+                    liveVideo.submit(frame, laneSegments, steeringDegrees, laneTracker.getConfidence());
+                }
+                if (frameTelemetry.isActive()) {
+                    frameTelemetry.navigated(frame, laneSegments, navigationNanos, steeringDegrees, laneTracker.getConfidence());
+                }
+                return NavigationDirections.of(steeringDegrees, frame.getCaptureTimestamp(), laneTracker.getConfidence());
+            });
+        });
     }
 
     @Override
@@ -31,8 +125,4 @@ public class BasicNavigator implements Navigator {
         navigationDirectionsFlux.subscribe(s);
     }
 
-    private NavigationDirections navigateBetweenLines(final List<Line> lines) {
-        return NavigationDirections.of(0);
-    }
-
 }
@@ -0,0 +1,204 @@
+package nl.jpoint.trojkaracer.car.domain.navigator;
+
+import nl.jpoint.trojkaracer.car.domain.car.Direction;
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneSegments;
+
+/**
+ * Calculates the steering angle that keeps the car in the centre of its lane. The detected segments are classified into left and right lane
+ * segments (by the direction they lean to and the side of the frame they are on), after which the length weighted position of both lanes is
+ * determined at the bottom of the frame and at a look ahead height. From these the offset of the car to the lane centre and the heading of
+ * the lane are calculated, which together determine the steering angle.
+ * <p>When only one lane is visible, the lane widths (at the bottom and at the look ahead height) measured last are used to estimate the
+ * other lane. When no lane is visible at all, the previous steering angle is kept.</p>
+ * <p>Optionally the lanes are tracked across frames with a {@link LaneTracker}; the steering angle is then calculated from the tracked
+ * (smoothed) lanes instead of the measurements of the single frame, and a lane that is briefly not visible is kept at its predicted
+ * position.</p>
+ * <p>The calculation works directly on the primitive arrays of the {@link LaneSegments} and keeps all its state in primitive fields, so it
+ * does not allocate. Instances are not thread safe.</p>
+ */
+public class LaneCentreCalculator {
+
+    static final double DEFAULT_LOOK_AHEAD_PERCENTAGE = 0.6;
+    static final double DEFAULT_OFFSET_GAIN = 0.8;
+    static final double DEFAULT_HEADING_GAIN = 0.5;
+    private static final double DEFAULT_NEAR_LANE_WIDTH_PERCENTAGE = 0.7;
+    private static final double DEFAULT_FAR_LANE_WIDTH_PERCENTAGE = 0.35;
+    private static final double SIDE_MARGIN_PERCENTAGE = 0.1;
+
+    private final double lookAheadPercentage;
+    private final double offsetGain;
+    private final double headingGain;
+    private final LaneTracker laneTracker;
+
+    private double nearLaneWidth = -1;
+    private double farLaneWidth = -1;
+    private int steeringDegrees;
+    private boolean leftLaneFound;
+    private boolean rightLaneFound;
+    private double leftLaneNearX;
+    private double leftLaneFarX;
+    private double rightLaneNearX;
+    private double rightLaneFarX;
+    private double offset;
+    private double headingDegrees;
+
+    public LaneCentreCalculator() {
+        this(DEFAULT_LOOK_AHEAD_PERCENTAGE, DEFAULT_OFFSET_GAIN, DEFAULT_HEADING_GAIN);
+    }
+
+    /**
+     * Creates a new calculator with the default settings, that tracks the lanes with the given tracker.
+     * @param laneTracker the tracker to track the lanes across frames with.
+     */
+    public LaneCentreCalculator(final LaneTracker laneTracker) {
+        this(DEFAULT_LOOK_AHEAD_PERCENTAGE, DEFAULT_OFFSET_GAIN, DEFAULT_HEADING_GAIN, laneTracker);
+    }
+
+    /**
+     * Creates a new calculator.
+     * @param lookAheadPercentage the height (as a fraction of the frame height) at which the heading of the lane is determined.
+     * @param offsetGain the steering response to the offset of the car to the lane centre; a gain of 1 steers at the maximum angle when
+     *                   the lane centre is at the edge of the frame.
+     * @param headingGain the steering response (in degrees steering per degree) to the heading of the lane.
+     */
+    public LaneCentreCalculator(final double lookAheadPercentage, final double offsetGain, final double headingGain) {
+        this(lookAheadPercentage, offsetGain, headingGain, null);
+    }
+
+    private LaneCentreCalculator(final double lookAheadPercentage, final double offsetGain, final double headingGain,
+                                 final LaneTracker laneTracker) {
+        this.lookAheadPercentage = lookAheadPercentage;
+        this.offsetGain = offsetGain;
+        this.headingGain = headingGain;
+        this.laneTracker = laneTracker;
+    }
+
+    /**
+     * Calculates the steering angle for the segments detected in a frame.
+     * @param segments the segments detected in the frame.
+     * @return the steering angle in degrees; positive to steer right, negative to steer left.
+     */
+    public int calculateSteering(final LaneSegments segments) {
+        final double frameWidth = segments.getFrameWidth();
+        final double halfWidth = frameWidth / 2;
+        final double nearY = segments.getFrameHeight();
+        final double farY = segments.getFrameHeight() * lookAheadPercentage;
+
+        double leftWeight = 0;
+        double leftNear = 0;
+        double leftFar = 0;
+        double rightWeight = 0;
+        double rightNear = 0;
+        double rightFar = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            final double inverseSlope = segments.getInverseSlope(i);
+            final double middleX = (segments.getX1(i) + segments.getX2(i)) / 2;
+            final double weight = segments.getLength(i);
+
+            if (inverseSlope < 0 && middleX < halfWidth + frameWidth * SIDE_MARGIN_PERCENTAGE) {
+                leftWeight += weight;
+                leftNear += weight * segments.getXAt(i, nearY);
+                leftFar += weight * segments.getXAt(i, farY);
+            } else if (inverseSlope > 0 && middleX > halfWidth - frameWidth * SIDE_MARGIN_PERCENTAGE) {
+                rightWeight += weight;
+                rightNear += weight * segments.getXAt(i, nearY);
+                rightFar += weight * segments.getXAt(i, farY);
+            }
+        }
+
+        leftLaneFound = leftWeight > 0;
+        rightLaneFound = rightWeight > 0;
+        if (leftLaneFound) {
+            leftLaneNearX = leftNear / leftWeight;
+            leftLaneFarX = leftFar / leftWeight;
+        }
+        if (rightLaneFound) {
+            rightLaneNearX = rightNear / rightWeight;
+            rightLaneFarX = rightFar / rightWeight;
+        }
+        if (laneTracker != null) {
+            useTrackedLanes(frameWidth, nearY, farY);
+        }
+
+        if (nearLaneWidth < 0) {
+            nearLaneWidth = frameWidth * DEFAULT_NEAR_LANE_WIDTH_PERCENTAGE;
+            farLaneWidth = frameWidth * DEFAULT_FAR_LANE_WIDTH_PERCENTAGE;
+        }
+
+        final double centreNearX;
+        final double centreFarX;
+        if (leftLaneFound && rightLaneFound) {
+            centreNearX = (leftLaneNearX + rightLaneNearX) / 2;
+            centreFarX = (leftLaneFarX + rightLaneFarX) / 2;
+            if (rightLaneNearX > leftLaneNearX && rightLaneFarX > leftLaneFarX) {
+                nearLaneWidth = rightLaneNearX - leftLaneNearX;
+                farLaneWidth = rightLaneFarX - leftLaneFarX;
+            }
+        } else if (leftLaneFound) {
+            centreNearX = leftLaneNearX + nearLaneWidth / 2;
+            centreFarX = leftLaneFarX + farLaneWidth / 2;
+        } else if (rightLaneFound) {
+            centreNearX = rightLaneNearX - nearLaneWidth / 2;
+            centreFarX = rightLaneFarX - farLaneWidth / 2;
+        } else {
+            return steeringDegrees;
+        }
+
+        offset = (centreNearX - halfWidth) / halfWidth;
+        headingDegrees = Math.toDegrees(Math.atan2(centreFarX - centreNearX, nearY - farY));
+
+        final double steering = offsetGain * offset * Direction.MAX_DEGREES + headingGain * headingDegrees;
+        steeringDegrees = (int) Math.round(Math.max(Direction.MIN_DEGREES, Math.min(Direction.MAX_DEGREES, steering)));
+        return steeringDegrees;
+    }
+
+    private void useTrackedLanes(final double frameWidth, final double nearY, final double farY) {
+        laneTracker.update(frameWidth, nearY, farY,
+                leftLaneFound, leftLaneNearX, leftLaneFarX, rightLaneFound, rightLaneNearX, rightLaneFarX);
+
+        final LaneTracker.LaneTrack leftLane = laneTracker.getLeftLane();
+        leftLaneFound = leftLane.isTracked();
+        leftLaneNearX = leftLane.getNearX();
+        leftLaneFarX = leftLane.getFarX();
+
+        final LaneTracker.LaneTrack rightLane = laneTracker.getRightLane();
+        rightLaneFound = rightLane.isTracked();
+        rightLaneNearX = rightLane.getNearX();
+        rightLaneFarX = rightLane.getFarX();
+    }
+
+    /**
+     * Returns whether at least one lane was found (or, when tracking, is still tracked) in the last frame.
+     */
+    public boolean isLaneFound() {
+        return leftLaneFound || rightLaneFound;
+    }
+
+    public boolean isLeftLaneFound() {
+        return leftLaneFound;
+    }
+
+    public boolean isRightLaneFound() {
+        return rightLaneFound;
+    }
+
+    /**
+     * Returns the offset of the lane centre to the centre of the frame, as a fraction of half the frame width; positive when the lane centre
+     * is to the right.
+     */
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the heading of the lane centre in degrees; positive when the lane bends to the right.
+     */
+    public double getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    public int getSteeringDegrees() {
+        return steeringDegrees;
+    }
+}
@@ -0,0 +1,186 @@
+package nl.jpoint.trojkaracer.car.domain.navigator;
+
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneSearchWindows;
+
+/**
+ * Tracks the left and right lane across frames. Every lane is described by its x position at the bottom of the frame (near) and at the look
+ * ahead height (far); both positions are estimated with a (scalar, random walk) Kalman filter, which smooths the measurement noise of the
+ * individual frames. Measurements that are too far from the predicted position are rejected as outliers.
+ * <p>A lane that is not measured for more than a maximum number of consecutive frames is lost. As long as both lanes are tracked, the tracker
+ * provides {@link LaneSearchWindows} around the predicted lanes, sized to the uncertainty of the estimates, so the next frame only has to be
+ * searched within those windows; otherwise the whole region of interest is searched.</p>
+ * <p>All state is kept in primitive fields. Instances are not thread safe.</p>
+ */
+public class LaneTracker {
+
+    static final int DEFAULT_MAX_MISSES = 5;
+    private static final double PROCESS_NOISE_PERCENTAGE = 0.02;
+    private static final double MEASUREMENT_NOISE_PERCENTAGE = 0.04;
+    private static final double GATE_PERCENTAGE = 0.15;
+    private static final double MIN_WINDOW_PERCENTAGE = 0.05;
+    private static final double MAX_WINDOW_PERCENTAGE = 0.2;
+    private static final double WINDOW_STANDARD_DEVIATIONS = 3;
+    private static final double CONFIDENCE_STEP = 0.5;
+
+    private final LaneTrack leftLane;
+    private final LaneTrack rightLane;
+    private final LaneSearchWindows searchWindows = new LaneSearchWindows();
+
+    public LaneTracker() {
+        this(DEFAULT_MAX_MISSES);
+    }
+
+    /**
+     * Creates a new tracker.
+     * @param maxMisses the number of consecutive frames a lane may not be measured before it is lost.
+     */
+    public LaneTracker(final int maxMisses) {
+        this.leftLane = new LaneTrack(maxMisses);
+        this.rightLane = new LaneTrack(maxMisses);
+    }
+
+    /**
+     * Updates the tracks of both lanes with the measurements of a frame and prepares the search windows for the next frame.
+     * @param frameWidth the width of the frame.
+     * @param nearY the height of the near positions.
+     * @param farY the height of the far positions.
+     * @param leftFound whether the left lane was measured in the frame.
+     * @param leftNearX the measured near position of the left lane.
+     * @param leftFarX the measured far position of the left lane.
+     * @param rightFound whether the right lane was measured in the frame.
+     * @param rightNearX the measured near position of the right lane.
+     * @param rightFarX the measured far position of the right lane.
+     */
+    public void update(final double frameWidth, final double nearY, final double farY,
+                       final boolean leftFound, final double leftNearX, final double leftFarX,
+                       final boolean rightFound, final double rightNearX, final double rightFarX) {
+        leftLane.update(frameWidth, leftFound, leftNearX, leftFarX);
+        rightLane.update(frameWidth, rightFound, rightNearX, rightFarX);
+
+        searchWindows.clear();
+        if (leftLane.isTracked() && rightLane.isTracked()) {
+            searchWindows.add(leftLane.getNearX(), nearY, leftLane.getFarX(), farY, leftLane.getWindowHalfWidth(frameWidth));
+            searchWindows.add(rightLane.getNearX(), nearY, rightLane.getFarX(), farY, rightLane.getWindowHalfWidth(frameWidth));
+        }
+    }
+
+    public LaneTrack getLeftLane() {
+        return leftLane;
+    }
+
+    public LaneTrack getRightLane() {
+        return rightLane;
+    }
+
+    /**
+     * Returns the windows to search the lanes in the next frame; empty when the whole region of interest should be searched.
+     */
+    public LaneSearchWindows getSearchWindows() {
+        return searchWindows;
+    }
+
+    /**
+     * Returns the confidence of the tracking: 0 when no lane is tracked, approaching 1 when both lanes have been measured consistently.
+     */
+    public double getConfidence() {
+        return (leftLane.getConfidence() + rightLane.getConfidence()) / 2;
+    }
+
+    /**
+     * The track of a single lane.
+     */
+    public static final class LaneTrack {
+
+        private final int maxMisses;
+
+        private boolean tracked;
+        private double nearX;
+        private double farX;
+        private double nearVariance;
+        private double farVariance;
+        private int misses;
+        private double confidence;
+
+        private LaneTrack(final int maxMisses) {
+            this.maxMisses = maxMisses;
+        }
+
+        private void update(final double frameWidth, final boolean found, final double measuredNearX, final double measuredFarX) {
+            final double measurementVariance = square(frameWidth * MEASUREMENT_NOISE_PERCENTAGE);
+            if (!tracked) {
+                if (found) {
+                    tracked = true;
+                    nearX = measuredNearX;
+                    farX = measuredFarX;
+                    nearVariance = measurementVariance;
+                    farVariance = measurementVariance;
+                    misses = 0;
+                    confidence = CONFIDENCE_STEP;
+                }
+                return;
+            }
+
+            final double processVariance = square(frameWidth * PROCESS_NOISE_PERCENTAGE);
+            nearVariance += processVariance;
+            farVariance += processVariance;
+
+            final double gate = frameWidth * GATE_PERCENTAGE;
+            if (found && Math.abs(measuredNearX - nearX) <= gate && Math.abs(measuredFarX - farX) <= gate) {
+                final double nearGain = nearVariance / (nearVariance + measurementVariance);
+                nearX += nearGain * (measuredNearX - nearX);
+                nearVariance *= 1 - nearGain;
+
+                final double farGain = farVariance / (farVariance + measurementVariance);
+                farX += farGain * (measuredFarX - farX);
+                farVariance *= 1 - farGain;
+
+                misses = 0;
+                confidence += (1 - confidence) * CONFIDENCE_STEP;
+            } else if (++misses > maxMisses) {
+                tracked = false;
+                confidence = 0;
+            } else {
+                confidence *= 1 - CONFIDENCE_STEP;
+            }
+        }
+
+        private double getWindowHalfWidth(final double frameWidth) {
+            final double standardDeviation = Math.sqrt(Math.max(nearVariance, farVariance));
+            return Math.max(frameWidth * MIN_WINDOW_PERCENTAGE,
+                    Math.min(frameWidth * MAX_WINDOW_PERCENTAGE, WINDOW_STANDARD_DEVIATIONS * standardDeviation));
+        }
+
+        private static double square(final double value) {
+            return value * value;
+        }
+
+        public boolean isTracked() {
+            return tracked;
+        }
+
+        /**
+         * Returns the estimated x position of the lane at the bottom of the frame.
+         */
+        public double getNearX() {
+            return nearX;
+        }
+
+        /**
+         * Returns the estimated x position of the lane at the look ahead height.
+         */
+        public double getFarX() {
+            return farX;
+        }
+
+        /**
+         * Returns the number of consecutive frames in which the lane was not measured.
+         */
+        public int getMisses() {
+            return misses;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+}
@@ -1,13 +1,40 @@
 package nl.jpoint.trojkaracer.car.domain.navigator;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
 
 /**
  * Class that provides navigational directions from the Navigator to the Driver.
  */
-@Value(staticConstructor = "of")
+@Value
+@AllArgsConstructor(staticName = "of")
 public class NavigationDirections {
 
+    /**
+     * The confidence of navigation directions that do not depend on detecting the track, like those of a fixed path.
+     */
+    public static final double FULL_CONFIDENCE = 1;
+
     private final int degrees;
 
+    /**
+     * The capture timestamp of the frame these directions were based on, or {@link PipelineMetrics#NO_TIMESTAMP} when they are not based
+     * on a frame.
+     */
+    private final long captureTimestamp;
+
+    /**
+     * The confidence of the navigator in these directions, between 0 (the track is lost; the directions are a guess) and 1.
+     */
+    private final double confidence;
+
+    public static NavigationDirections of(final int degrees) {
+        return of(degrees, PipelineMetrics.NO_TIMESTAMP);
+    }
+
+    public static NavigationDirections of(final int degrees, final long captureTimestamp) {
+        return of(degrees, captureTimestamp, FULL_CONFIDENCE);
+    }
+
 }
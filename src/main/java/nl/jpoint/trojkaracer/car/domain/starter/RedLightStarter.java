@@ -1,8 +1,8 @@
 package nl.jpoint.trojkaracer.car.domain.starter;
 
 import java.lang.invoke.MethodHandles;
+import nl.jpoint.trojkaracer.car.domain.Frame;
 import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
-import org.opencv.core.Mat;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.slf4j.Logger;
@@ -23,10 +23,11 @@ public class RedLightStarter implements Starter {
     private int previousNrOfPixels = 0;
     private int currentNrOfPixels = 0;
 
-    public RedLightStarter(final Flux<Mat> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
+    public RedLightStarter(final Flux<Frame> viewPublisher, final ComputerVisionHelper computerVisionHelper) {
         final int redHue = computerVisionHelper.getHueForRGB(255, 0, 0);
 
         startPublisher = Flux.from(viewPublisher)
+                .map(Frame::getImage)
                 .map(image -> computerVisionHelper.filterToColor(image, redHue))
                 .map(computerVisionHelper::findAmountOfNonBlackPixels)
                 .filter(this::redLightWentOff)
@@ -0,0 +1,74 @@
+package nl.jpoint.trojkaracer.car.domain.starter;
+
+/**
+ * Detects the start signal from the number of lit pixels of the start light in consecutive frames: the light has to be seen on for a number
+ * of consecutive frames first, after which the start signal is given once it has been seen off for the same number of consecutive frames.
+ * Requiring consecutive frames prevents a single noisy frame (or a passing shadow) from starting the race.
+ * <p>The detector remembers the capture timestamp of the first frame in which the light was seen off, the moment the start signal was
+ * actually given, so the reaction time of the car can be measured from it. Instances are not thread safe.</p>
+ */
+class StartLightDetector {
+
+    private final int minLitPixels;
+    private final int confirmationFrames;
+
+    private boolean lightOn;
+    private int consecutiveFrames;
+    private long lightOffCaptureTimestamp;
+
+    /**
+     * Creates a new detector.
+     * @param minLitPixels the minimal number of lit pixels for the light to be on.
+     * @param confirmationFrames the number of consecutive frames the light has to be seen on, and off, before the change is accepted.
+     */
+    StartLightDetector(final int minLitPixels, final int confirmationFrames) {
+        if (confirmationFrames < 1) {
+            throw new IllegalArgumentException(String.format("At least one confirmation frame is required (confirmationFrames: %s)",
+                    confirmationFrames));
+        }
+        this.minLitPixels = minLitPixels;
+        this.confirmationFrames = confirmationFrames;
+    }
+
+    /**
+     * Processes the number of lit pixels in a frame.
+     * @param litPixels the number of lit pixels in the frame.
+     * @param captureTimestamp the capture timestamp of the frame.
+     * @return whether the start signal was detected with this frame.
+     */
+    boolean process(final int litPixels, final long captureTimestamp) {
+        final boolean lit = litPixels >= minLitPixels;
+        if (!lightOn) {
+            consecutiveFrames = lit ? consecutiveFrames + 1 : 0;
+            if (consecutiveFrames >= confirmationFrames) {
+                lightOn = true;
+                consecutiveFrames = 0;
+            }
+            return false;
+        }
+
+        if (lit) {
+            consecutiveFrames = 0;
+            return false;
+        }
+        if (consecutiveFrames == 0) {
+            lightOffCaptureTimestamp = captureTimestamp;
+        }
+        consecutiveFrames++;
+        return consecutiveFrames >= confirmationFrames;
+    }
+
+    /**
+     * Returns whether the light has been seen on.
+     */
+    boolean isLightOn() {
+        return lightOn;
+    }
+
+    /**
+     * Returns the capture timestamp of the first frame in which the light was seen off.
+     */
+    long getLightOffCaptureTimestamp() {
+        return lightOffCaptureTimestamp;
+    }
+}
@@ -0,0 +1,143 @@
+package nl.jpoint.trojkaracer.car.domain.starter;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.computervision.ComputerVisionHelper;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics.Stage;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Implementation of the {@link Starter} interface that watches the start light and sends the signal as soon as it has seen the light go off.
+ * Unlike the {@link RedLightStarter} it only looks at a small, configured region around the light and counts the lit pixels in it with a
+ * cheap per-channel threshold (bright red in color frames, bright in luma only frames) instead of converting the whole frame to HSV, so it
+ * keeps up with every frame the camera delivers. The light has to be seen on, and then off, for a number of consecutive frames (see
+ * {@link StartLightDetector}).
+ * <p>The starter is only subscribed to while the race is awaiting the start signal, during which the frame rate is at its highest (see
+ * {@link nl.jpoint.trojkaracer.car.domain.FrameRateGovernor}). The reaction time, from the capture of the first frame in which the light was
+ * off until the start signal is given, is recorded in the {@link PipelineMetrics}.</p>
+ */
+public class StartLightStarter implements Starter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final Scalar LIGHT_LOWER_BGR = new Scalar(0, 0, 150);
+    private static final Scalar LIGHT_UPPER_BGR = new Scalar(110, 110, 255);
+    private static final Scalar LIGHT_LOWER_LUMA = new Scalar(200);
+    private static final Scalar LIGHT_UPPER_LUMA = new Scalar(255);
+    private static final double MIN_LIT_PERCENTAGE = 0.05;
+
+    private final Publisher<Boolean> startPublisher;
+
+    /**
+     * Creates a new starter watching the start light in the given region of the frames.
+     * @param viewPublisher the frames to watch the start light in.
+     * @param computerVisionHelper the helper to count the lit pixels with.
+     * @param pipelineMetrics the metrics to record the detection duration and reaction time in.
+     * @param roiXPercentage the left side of the region with the light, as a fraction of the frame width.
+     * @param roiYPercentage the top of the region with the light, as a fraction of the frame height.
+     * @param roiWidthPercentage the width of the region with the light, as a fraction of the frame width.
+     * @param roiHeightPercentage the height of the region with the light, as a fraction of the frame height.
+     * @param confirmationFrames the number of consecutive frames the light has to be seen on, and off.
+     */
+    public StartLightStarter(final Flux<Frame> viewPublisher,
+                             final ComputerVisionHelper computerVisionHelper,
+                             final PipelineMetrics pipelineMetrics,
+                             final double roiXPercentage,
+                             final double roiYPercentage,
+                             final double roiWidthPercentage,
+                             final double roiHeightPercentage,
+                             final int confirmationFrames) {
+        if (roiXPercentage < 0 || roiYPercentage < 0 || roiWidthPercentage <= 0 || roiHeightPercentage <= 0
+                || roiXPercentage + roiWidthPercentage > 1 || roiYPercentage + roiHeightPercentage > 1) {
+            throw new IllegalArgumentException(String.format("The start light region must lie within the frame (x: %s, y: %s, width: %s, height: %s)",
+                    roiXPercentage, roiYPercentage, roiWidthPercentage, roiHeightPercentage));
+        }
+
+        // Every subscription (every race) starts with a detector of its own
+        startPublisher = Flux.defer(() -> {
+            final Mat litMask = new Mat();
+            final StartLight startLight = new StartLight(roiXPercentage, roiYPercentage, roiWidthPercentage, roiHeightPercentage,
+                    confirmationFrames);
+
+            return Flux.from(viewPublisher)
+                    .filter(frame -> {
+                        final long start = System.nanoTime();
+                        final boolean startSignal = startLight.process(frame, computerVisionHelper, litMask);
+                        pipelineMetrics.recordSince(Stage.START_LIGHT, start);
+                        return startSignal;
+                    })
+                    .take(1)
+                    .map(frame -> {
+                        final long reactionNanos = pipelineMetrics.recordStartReaction(startLight.getLightOffCaptureTimestamp());
+                        LOGGER.info("{} detected the start light going off; reaction time {} ms.", getClass().getSimpleName(),
+                                TimeUnit.NANOSECONDS.toMillis(reactionNanos));
+                        return Boolean.TRUE;
+                    })
+                    .doFinally(signal -> litMask.release());
+        });
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Boolean> s) {
+        startPublisher.subscribe(s);
+    }
+
+    /**
+     * The start light in the frames of a single race; the region and detector are created for the size of the first frame.
+     */
+    private static final class StartLight {
+
+        private final double roiXPercentage;
+        private final double roiYPercentage;
+        private final double roiWidthPercentage;
+        private final double roiHeightPercentage;
+        private final int confirmationFrames;
+
+        private Rect region;
+        private StartLightDetector detector;
+
+        private StartLight(final double roiXPercentage, final double roiYPercentage, final double roiWidthPercentage,
+                           final double roiHeightPercentage, final int confirmationFrames) {
+            this.roiXPercentage = roiXPercentage;
+            this.roiYPercentage = roiYPercentage;
+            this.roiWidthPercentage = roiWidthPercentage;
+            this.roiHeightPercentage = roiHeightPercentage;
+            this.confirmationFrames = confirmationFrames;
+        }
+
+        private boolean process(final Frame frame, final ComputerVisionHelper computerVisionHelper, final Mat litMask) {
+            final Mat image = frame.getImage();
+            if (image.empty()) {
+                return false;
+            }
+            if (region == null) {
+                region = new Rect((int) (image.cols() * roiXPercentage), (int) (image.rows() * roiYPercentage),
+                        Math.max(1, (int) (image.cols() * roiWidthPercentage)), Math.max(1, (int) (image.rows() * roiHeightPercentage)));
+                detector = new StartLightDetector(Math.max(1, (int) (region.area() * MIN_LIT_PERCENTAGE)), confirmationFrames);
+                LOGGER.info("Watching the start light in region {} of the {}x{} frames.", region, image.cols(), image.rows());
+            }
+
+            final boolean luma = image.channels() == 1;
+            final int litPixels = computerVisionHelper.countPixelsInRange(image, region,
+                    luma ? LIGHT_LOWER_LUMA : LIGHT_LOWER_BGR, luma ? LIGHT_UPPER_LUMA : LIGHT_UPPER_BGR, litMask);
+            final boolean wasLightOn = detector.isLightOn();
+            final boolean startSignal = detector.process(litPixels, frame.getCaptureTimestamp());
+            if (!wasLightOn && detector.isLightOn()) {
+                LOGGER.info("Detected the start light ({} lit pixels).", litPixels);
+            }
+            return startSignal;
+        }
+
+        private long getLightOffCaptureTimestamp() {
+            return detector.getLightOffCaptureTimestamp();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package nl.jpoint.trojkaracer.car.domain.telemetry;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneSegments;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import nl.jpoint.trojkaracer.car.domain.telemetry.TelemetryRecord.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Collects a {@link TelemetryRecord} for every navigated frame: the navigator fills in what the vision detected and what it decided (see
+ * {@link #navigated(Frame, LaneSegments, long, int, double)}), and the car driving service adds what the car applied when it has applied the
+ * drive command based on the same frame (see {@link #applied(long, CarStatus, long)}). The completed records are published to the
+ * subscribers of {@link #getEncodedRecords()}.
+ * <p>Records are only collected while there are subscribers (see {@link #isActive()}). Every subscriber reads the records through a bounded
+ * buffer that drops the oldest record when it is full, so a slow subscriber never blocks the pipeline; the records are encoded (see
+ * {@link TelemetryEncoder}) off the pipeline threads.</p>
+ */
+public class FrameTelemetry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final int PERCENT = 100;
+
+    private final int bufferSize;
+    private final DirectProcessor<TelemetryRecord> records = DirectProcessor.create();
+    private final FluxSink<TelemetryRecord> recordSink = records.sink();
+    private final AtomicReference<TelemetryRecord> pendingRecord = new AtomicReference<>();
+    private final AtomicLong droppedRecords = new AtomicLong(0);
+
+    /**
+     * Creates a new frame telemetry.
+     * @param bufferSize the maximum number of records buffered for every subscriber.
+     */
+    public FrameTelemetry(final int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The telemetry buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns a frame telemetry that is not published anywhere; for the components that are created outside of the Spring context.
+     * @return a frame telemetry that is not published anywhere.
+     */
+    public static FrameTelemetry noop() {
+        return new FrameTelemetry(1);
+    }
+
+    /**
+     * Returns whether anyone subscribed to the telemetry; records are only collected while this is the case.
+     */
+    public boolean isActive() {
+        return records.hasDownstreams();
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * Starts the record of a navigated frame. A previous record that was never completed (its drive command was not applied) is published as
+     * it is.
+     * @param frame the navigated frame.
+     * @param laneSegments the lane segments detected in the frame, with their detection statistics.
+     * @param navigationNanos the duration of the navigation, in nanoseconds.
+     * @param steeringDegrees the steering decision of the navigator.
+     * @param confidence the confidence of the navigator.
+     */
+    public void navigated(final Frame frame, final LaneSegments laneSegments, final long navigationNanos, final int steeringDegrees,
+                          final double confidence) {
+        final TelemetryRecord record = new TelemetryRecord(frame.getCaptureTimestamp());
+        record.set(Field.SEQUENCE_NUMBER, frame.getSequenceNumber());
+        record.set(Field.BLUR_MICROS, TimeUnit.NANOSECONDS.toMicros(laneSegments.getBlurNanos()));
+        record.set(Field.CANNY_MICROS, TimeUnit.NANOSECONDS.toMicros(laneSegments.getCannyNanos()));
+        record.set(Field.HOUGH_MICROS, TimeUnit.NANOSECONDS.toMicros(laneSegments.getHoughNanos()));
+        record.set(Field.NAVIGATION_MICROS, TimeUnit.NANOSECONDS.toMicros(navigationNanos));
+        record.set(Field.DETECTED_SEGMENTS, laneSegments.getDetectedCount());
+        record.set(Field.LANE_SEGMENTS, laneSegments.size());
+        record.set(Field.STEERING_DEGREES, steeringDegrees);
+        record.set(Field.CONFIDENCE_PERCENTAGE, Math.round(confidence * PERCENT));
+
+        final TelemetryRecord incompleteRecord = pendingRecord.getAndSet(record);
+        if (incompleteRecord != null) {
+            recordSink.next(incompleteRecord);
+        }
+    }
+
+    /**
+     * Completes and publishes the record of the frame the applied drive command was based on.
+     * @param captureTimestamp the capture timestamp of the frame the drive command was based on.
+     * @param carStatus the status of the car after applying the drive command: the values written to the engine.
+     * @param driveNanos the duration of applying the drive command, in nanoseconds.
+     */
+    public void applied(final long captureTimestamp, final CarStatus carStatus, final long driveNanos) {
+        if (captureTimestamp == PipelineMetrics.NO_TIMESTAMP) {
+            return;
+        }
+
+        final TelemetryRecord record = pendingRecord.get();
+        if (record == null || record.getCaptureTimestamp() != captureTimestamp || !pendingRecord.compareAndSet(record, null)) {
+            return;
+        }
+        record.set(Field.ENGINE_SPEED, carStatus.getSpeed().getSpeedValue());
+        record.set(Field.ENGINE_DIRECTION, carStatus.getDirection().getDegrees());
+        record.set(Field.DRIVE_MICROS, TimeUnit.NANOSECONDS.toMicros(driveNanos));
+        record.set(Field.GLASS_TO_WHEEL_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - captureTimestamp));
+        recordSink.next(record);
+    }
+
+    /**
+     * Returns the delta encoded records, for a single subscriber (see {@link TelemetryEncoder}).
+     * @return the delta encoded records.
+     */
+    public Flux<byte[]> getEncodedRecords() {
+        return Flux.defer(() -> {
+            final TelemetryEncoder encoder = new TelemetryEncoder();
+            return records
+                    .onBackpressureBuffer(bufferSize, record -> droppedRecords.incrementAndGet(), BufferOverflowStrategy.DROP_OLDEST)
+                    .publishOn(Schedulers.parallel(), 1)
+                    .map(encoder::encode)
+                    .doFinally(signal -> LOGGER.debug("Telemetry subscriber left; {} records dropped in total.", droppedRecords.get()));
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package nl.jpoint.trojkaracer.car.domain.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * Delta encodes a stream of {@link TelemetryRecord}s against the previously encoded record. Every encoded record starts with a varint bit
+ * mask of the fields that changed (bit n for the n-th {@link TelemetryRecord.Field}), followed by the difference with the previous value of
+ * every changed field, in field order, as zigzag encoded varint. The first record is encoded against a record of zeros.
+ * <p>Consecutive records mostly differ in a few small values (the sequence number increments by one, the steering changes by a few degrees),
+ * so a typical record takes only a handful of bytes. An encoder holds the state of a single stream and is not thread safe.</p>
+ */
+public class TelemetryEncoder {
+
+    // The mask plus every field: at most 10 bytes per varint
+    private static final int MAX_RECORD_LENGTH = 10 * (TelemetryRecord.NUMBER_OF_FIELDS + 1);
+
+    private final long[] previousValues = new long[TelemetryRecord.NUMBER_OF_FIELDS];
+    private final byte[] buffer = new byte[MAX_RECORD_LENGTH];
+    private int position;
+
+    /**
+     * Encodes the record against the previously encoded record.
+     * @param record the record to encode.
+     * @return the encoded record.
+     */
+    public byte[] encode(final TelemetryRecord record) {
+        long changedFields = 0;
+        for (int i = 0; i < TelemetryRecord.NUMBER_OF_FIELDS; i++) {
+            if (record.get(i) != previousValues[i]) {
+                changedFields |= 1L << i;
+            }
+        }
+
+        position = 0;
+        writeVarint(changedFields);
+        for (int i = 0; i < TelemetryRecord.NUMBER_OF_FIELDS; i++) {
+            if ((changedFields & 1L << i) != 0) {
+                final long delta = record.get(i) - previousValues[i];
+                writeVarint(delta << 1 ^ delta >> 63);
+                previousValues[i] = record.get(i);
+            }
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void writeVarint(final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer[position++] = (byte) (remaining & 0x7F | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.jpoint.trojkaracer.car.domain.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * The telemetry of a single processed frame: what the vision detected, what the navigator decided and what the car applied. All values are
+ * whole numbers, indexed by {@link Field}, so records can be delta encoded field by field (see {@link TelemetryEncoder}).
+ * <p>A record is filled by the pipeline and must not be changed once it has been published.</p>
+ */
+public class TelemetryRecord {
+
+    /**
+     * The fields of a record, in the order they are encoded in.
+     */
+    public enum Field {
+        SEQUENCE_NUMBER,
+        BLUR_MICROS,
+        CANNY_MICROS,
+        HOUGH_MICROS,
+        NAVIGATION_MICROS,
+        DETECTED_SEGMENTS,
+        LANE_SEGMENTS,
+        STEERING_DEGREES,
+        CONFIDENCE_PERCENTAGE,
+        ENGINE_SPEED,
+        ENGINE_DIRECTION,
+        DRIVE_MICROS,
+        GLASS_TO_WHEEL_MICROS
+    }
+
+    static final int NUMBER_OF_FIELDS = Field.values().length;
+
+    private final long captureTimestamp;
+    private final long[] values = new long[NUMBER_OF_FIELDS];
+
+    TelemetryRecord(final long captureTimestamp) {
+        this.captureTimestamp = captureTimestamp;
+    }
+
+    long getCaptureTimestamp() {
+        return captureTimestamp;
+    }
+
+    void set(final Field field, final long value) {
+        values[field.ordinal()] = value;
+    }
+
+    public long get(final Field field) {
+        return values[field.ordinal()];
+    }
+
+    long get(final int fieldIndex) {
+        return values[fieldIndex];
+    }
+
+    @Override
+    public String toString() {
+        return "TelemetryRecord" + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,173 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Grabs frames from the camera on a dedicated thread, as fast as the camera delivers them, and publishes a frame the moment it is captured
+ * (see {@link #getFrames()}). Every frame is grabbed, so the buffers of the camera driver never fill up with stale frames and the capture
+ * timestamp is the moment the frame left the driver; only the publishing is limited to the configured maximum frame rate. Frames that are
+ * not published because of that limit, or because nobody is subscribed, are not even retrieved from the camera and are counted as dropped.
+ * The grabber never waits for its subscribers: a frame is only delivered to the subscribers that have demand for it.
+ * <p>The images of the frames are taken from a pool of buffers: the image of a frame goes back into the pool when the last consumer released
+ * the frame (see {@link Frame#release()}), so the grabber does not allocate a new native buffer for every frame. When all buffers are in
+ * use, a new buffer is allocated; buffers that do not fit in the pool anymore are released.</p>
+ * <p>In luma only mode the published frames are single channel frames: the Y plane is taken from the raw (YUYV) camera frames. When the
+ * camera does not deliver raw frames, the BGR frames are converted to grayscale on the grabber thread instead.</p>
+ */
+class CameraFrameGrabber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final VideoCapture camera;
+    private final boolean lumaOnly;
+    private final Mat rawFrame = new Mat();
+    private final BlockingQueue<Mat> imagePool;
+    private final DirectProcessor<Frame> frames = DirectProcessor.create();
+    private final FluxSink<Frame> frameSink = frames.sink();
+
+    private final AtomicLong capturedFrames = new AtomicLong(0);
+    private final AtomicLong droppedFrames = new AtomicLong(0);
+
+    private final Thread grabberThread;
+    private volatile long minimalFrameIntervalNanos;
+    private volatile boolean running;
+
+    /**
+     * Creates a new grabber; the grabber thread is only started by {@link #start()}.
+     * @param camera the camera to grab the frames from.
+     * @param poolSize the maximum number of image buffers kept for reuse.
+     * @param maxFramesPerSecond the maximum number of frames to publish per second, or 0 to publish every frame of the camera.
+     * @param lumaOnly whether to only keep the luma (Y) plane of the frames.
+     */
+    CameraFrameGrabber(final VideoCapture camera, final int poolSize, final int maxFramesPerSecond, final boolean lumaOnly) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException(String.format("The pool should hold at least 1 image (poolSize: %s)", poolSize));
+        }
+
+        this.camera = camera;
+        this.lumaOnly = lumaOnly;
+        this.imagePool = new ArrayBlockingQueue<>(poolSize);
+
+        setMaxFramesPerSecond(maxFramesPerSecond);
+
+        grabberThread = new Thread(this::grabFrames, "camera-grabber");
+        grabberThread.setDaemon(true);
+    }
+
+    void start() {
+        LOGGER.info("Starting the camera grabber thread with a pool of {} images.", imagePool.remainingCapacity());
+        running = true;
+        grabberThread.start();
+    }
+
+    void stop() {
+        LOGGER.info("Stopping the camera grabber thread after capturing {} frames of which {} were dropped.", capturedFrames.get(),
+                droppedFrames.get());
+        running = false;
+        try {
+            grabberThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        frameSink.complete();
+        imagePool.forEach(Mat::release);
+        imagePool.clear();
+    }
+
+    /**
+     * Sets the maximum publish rate; the camera keeps capturing at its own rate.
+     * @param maxFramesPerSecond the maximum number of frames to publish per second, or 0 to publish every frame of the camera.
+     */
+    void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        minimalFrameIntervalNanos = maxFramesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond : 0;
+    }
+
+    long getCapturedFrames() {
+        return capturedFrames.get();
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Returns the captured frames, published on the grabber thread. The flux is hot: frames are dropped for subscribers without demand. The
+     * frames are released right after they were published, so a subscriber that uses a frame after that has to retain it.
+     * @return the captured frames.
+     */
+    Flux<Frame> getFrames() {
+        return frames.onBackpressureDrop();
+    }
+
+    private void grabFrames() {
+        long nextPublish = System.nanoTime();
+
+        while (running) {
+            if (!camera.grab()) {
+                LOGGER.warn("Failed to grab a frame from the camera.");
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            final long captureTimestamp = System.nanoTime();
+            final long sequenceNumber = capturedFrames.incrementAndGet();
+
+            final long minimalInterval = minimalFrameIntervalNanos;
+            if (!frames.hasDownstreams() || minimalInterval > 0 && captureTimestamp < nextPublish) {
+                droppedFrames.incrementAndGet();
+                continue;
+            }
+            if (minimalInterval > 0) {
+                nextPublish = Math.max(nextPublish + minimalInterval, captureTimestamp);
+            }
+
+            final Mat pooledImage = imagePool.poll();
+            final Mat image = pooledImage != null ? pooledImage : new Mat();
+            if (lumaOnly) {
+                camera.retrieve(rawFrame);
+                extractLuma(rawFrame, image);
+            } else {
+                camera.retrieve(image);
+            }
+
+            final Frame frame = Frame.of(sequenceNumber, captureTimestamp, image, this::recycle);
+            frameSink.next(frame);
+            frame.release();
+        }
+    }
+
+    private void recycle(final Mat image) {
+        if (!running || !imagePool.offer(image)) {
+            image.release();
+        }
+    }
+
+    private static void extractLuma(final Mat frame, final Mat luma) {
+        switch (frame.channels()) {
+            case 1:
+                frame.copyTo(luma);
+                break;
+            case 2:
+                // Packed YUYV: the first channel of every pixel is its Y value
+                Core.extractChannel(frame, luma, 0);
+                break;
+            default:
+                Imgproc.cvtColor(frame, luma, Imgproc.COLOR_BGR2GRAY);
+                break;
+        }
+    }
+}
@@ -10,9 +10,11 @@ import lombok.Getter;
 /**
  * Implementation of the {@link CarEngine} interface, specifically meant for testing and for when running the application in
  * development mode (i.e. when not run on the Raspberry Pi).
+ * <p>Active in every profile except <code>production</code> (development, development-laptop and replay), so there is always exactly one
+ * car engine: combining replay with production drives the real car with the {@link PiOnboardPWMCarEngine}.</p>
  */
 @Component("carEngine")
-@Profile({"development", "development-laptop"})
+@Profile("!production")
 @Getter
 public class DevAndTestCarEngine implements CarEngine {
 
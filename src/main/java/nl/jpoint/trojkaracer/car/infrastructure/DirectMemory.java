@@ -0,0 +1,114 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sun.misc.Unsafe;
+
+/**
+ * Access to the native memory of direct buffers, which the public API does not offer: copying native memory (like the pixels of a
+ * {@link org.opencv.core.Mat}) straight into a memory-mapped file, and unmapping a memory-mapped file as soon as it is no longer used
+ * instead of whenever the garbage collector gets to it. The latter matters on the 32-bit Raspberry Pi, where a few large mappings exhaust
+ * the address space.
+ * <p>This is the only class that uses the internal <code>sun.misc.Unsafe</code> API (for which javac warns on every build); callers check
+ * {@link #isAvailable()} and fall back to the public API when it is not.</p>
+ */
+final class DirectMemory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final Unsafe UNSAFE;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        Unsafe unsafe = null;
+        long addressOffset = -1;
+        try {
+            final Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            unsafe = (Unsafe) unsafeField.get(null);
+            addressOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (final ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOGGER.info("Direct memory access is not available on this JVM; native memory is copied through Java arrays instead.");
+            LOGGER.debug("Direct memory access failed.", e);
+            unsafe = null;
+        }
+        UNSAFE = unsafe;
+        ADDRESS_OFFSET = addressOffset;
+    }
+
+    private DirectMemory() {
+    }
+
+    /**
+     * Returns whether the native memory of direct buffers can be accessed on this JVM.
+     */
+    static boolean isAvailable() {
+        return UNSAFE != null;
+    }
+
+    /**
+     * Copies native memory into a direct buffer.
+     * @param sourceAddress the address of the native memory to copy.
+     * @param target the direct buffer to copy into.
+     * @param position the position in the buffer to copy to.
+     * @param length the number of bytes to copy.
+     */
+    static void copy(final long sourceAddress, final ByteBuffer target, final int position, final int length) {
+        UNSAFE.copyMemory(sourceAddress, addressOf(target, position, length), length);
+    }
+
+    /**
+     * Copies a part of a direct buffer into native memory.
+     * @param source the direct buffer to copy from.
+     * @param position the position in the buffer to copy from.
+     * @param targetAddress the address of the native memory to copy into.
+     * @param length the number of bytes to copy.
+     */
+    static void copy(final ByteBuffer source, final int position, final long targetAddress, final int length) {
+        UNSAFE.copyMemory(addressOf(source, position, length), targetAddress, length);
+    }
+
+    private static long addressOf(final ByteBuffer buffer, final int position, final int length) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Direct memory access is not available on this JVM");
+        }
+        if (!buffer.isDirect() || position < 0 || length < 0 || position > buffer.capacity() - length) {
+            throw new IllegalArgumentException(String.format("Unable to copy from or into the buffer (buffer: %s, position: %s, length: %s)",
+                    buffer, position, length));
+        }
+        return UNSAFE.getLong(buffer, ADDRESS_OFFSET) + position;
+    }
+
+    /**
+     * Unmaps a memory-mapped file right away; the buffer must not be used afterwards. When the JVM does not allow it, the file is left to be
+     * unmapped by the garbage collector.
+     * @param mappedFile the memory-mapped file to unmap.
+     */
+    static void unmap(final MappedByteBuffer mappedFile) {
+        try {
+            if (isAvailable()) {
+                try {
+                    // Java 9 and later
+                    Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class).invoke(UNSAFE, mappedFile);
+                    return;
+                } catch (final NoSuchMethodException e) {
+                    // Java 8, see below
+                }
+            }
+            // Java 8: sun.nio.ch.DirectBuffer#cleaner()
+            final Method cleanerMethod = mappedFile.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(mappedFile);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Unable to unmap a memory-mapped file; leaving it to the garbage collector.", e);
+        }
+    }
+}
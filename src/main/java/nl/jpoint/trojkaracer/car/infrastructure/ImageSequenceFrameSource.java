@@ -0,0 +1,77 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * {@link RecordedFrameSource} that reads the frames from a directory of images, in the order of their file names. All images are decoded
+ * up front, so replaying them does not include the cost of reading and decoding image files.
+ */
+class ImageSequenceFrameSource implements RecordedFrameSource {
+
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png", ".bmp");
+
+    private final List<Mat> images = new ArrayList<>();
+    private final double framesPerSecond;
+    private int index = -1;
+
+    ImageSequenceFrameSource(final File directory, final double framesPerSecond) {
+        final File[] files = directory.listFiles(ImageSequenceFrameSource::isImage);
+        if (files != null) {
+            Arrays.sort(files);
+            for (final File file : files) {
+                final Mat image = Imgcodecs.imread(file.getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+                if (!image.empty()) {
+                    images.add(image);
+                }
+            }
+        }
+        if (images.isEmpty()) {
+            throw new IllegalArgumentException(String.format("The directory does not contain any images (directory: %s)", directory));
+        }
+        this.framesPerSecond = framesPerSecond;
+    }
+
+    private static boolean isImage(final File file) {
+        final String name = file.getName().toLowerCase();
+        return file.isFile() && IMAGE_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    @Override
+    public boolean grab() {
+        if (index + 1 >= images.size()) {
+            return false;
+        }
+        index++;
+        return true;
+    }
+
+    @Override
+    public boolean retrieve(final Mat destination) {
+        if (index < 0) {
+            return false;
+        }
+        images.get(index).copyTo(destination);
+        return true;
+    }
+
+    @Override
+    public void rewind() {
+        index = -1;
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public void release() {
+        images.forEach(Mat::release);
+        images.clear();
+    }
+}
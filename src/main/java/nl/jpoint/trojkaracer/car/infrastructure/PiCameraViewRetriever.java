@@ -1,29 +1,80 @@
 package nl.jpoint.trojkaracer.car.infrastructure;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.annotation.PreDestroy;
+import nl.jpoint.trojkaracer.car.domain.Frame;
 import nl.jpoint.trojkaracer.car.domain.ViewRetriever;
-import org.opencv.core.Core;
-import org.opencv.core.Mat;
 import org.opencv.videoio.VideoCapture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 
 /**
- * Implementation of the {@link nl.jpoint.trojkaracer.car.domain.ViewRetriever}
+ * Implementation of the {@link nl.jpoint.trojkaracer.car.domain.ViewRetriever}; the camera is read by a dedicated grabber thread that
+ * publishes every frame the moment it is captured, so a frame never waits in the camera's queue or for the next poll. The images of the
+ * frames are pooled buffers, reused as soon as the last consumer released the frame.
+ * <p>The number of captured and dropped frames are published as the <code>trojkaracer.camera.frames</code> counter, tagged with the
+ * <code>result</code> of the frames.</p>
+ * <p>Replaced by the {@link ReplayViewRetriever} when the <code>replay</code> profile is active.</p>
  */
 @Component
+@Profile("!replay")
 public class PiCameraViewRetriever implements ViewRetriever {
 
-    private final VideoCapture camera;
+    static final String CAMERA_FRAMES_COUNTER_NAME = "trojkaracer.camera.frames";
+    private static final String CAMERA_FRAMES_COUNTER_DESCRIPTION = "Number of frames captured by the camera, and of those the number that was "
+            + "dropped: not published because of the maximum frame rate or because nobody was subscribed";
 
-    public PiCameraViewRetriever(final VideoCapture camera) {
-        this.camera = camera;
+    private final CameraFrameGrabber frameGrabber;
+
+    public PiCameraViewRetriever(final VideoCapture camera,
+                                 final MeterRegistry meterRegistry,
+                                 @Value("${camera.capture.buffer.pool.size:8}") final int bufferPoolSize,
+                                 @Value("${camera.capture.max.fps:0}") final int maxFramesPerSecond,
+                                 @Value("${camera.capture.luma.only:false}") final boolean lumaOnly) {
+        this.frameGrabber = new CameraFrameGrabber(camera, bufferPoolSize, maxFramesPerSecond, lumaOnly);
+        this.frameGrabber.start();
+
+        FunctionCounter.builder(CAMERA_FRAMES_COUNTER_NAME, frameGrabber, CameraFrameGrabber::getCapturedFrames)
+                .description(CAMERA_FRAMES_COUNTER_DESCRIPTION)
+                .tag("result", "captured")
+                .register(meterRegistry);
+        FunctionCounter.builder(CAMERA_FRAMES_COUNTER_NAME, frameGrabber, CameraFrameGrabber::getDroppedFrames)
+                .description(CAMERA_FRAMES_COUNTER_DESCRIPTION)
+                .tag("result", "dropped")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        frameGrabber.stop();
+    }
+
+    @Override
+    public Flux<Frame> getFrames() {
+        return frameGrabber.getFrames();
     }
 
     @Override
-    public Mat getView() {
-        final Mat view = new Mat();
-        camera.read(view);
-        Core.flip(view, view, -1);
+    public void setMaxFramesPerSecond(final int maxFramesPerSecond) {
+        frameGrabber.setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
+    /**
+     * Returns the number of frames captured by the camera so far.
+     * @return the number of frames captured by the camera so far.
+     */
+    public long getCapturedFrames() {
+        return frameGrabber.getCapturedFrames();
+    }
 
-        return view;
+    /**
+     * Returns the number of captured frames that were not published because nobody was subscribed to them.
+     * @return the number of captured frames that were not published because nobody was subscribed to them.
+     */
+    public long getDroppedFrames() {
+        return frameGrabber.getDroppedFrames();
     }
 }
@@ -4,6 +4,8 @@ import com.pi4j.io.gpio.GpioController;
 import com.pi4j.io.gpio.GpioPinPwmOutput;
 import com.pi4j.io.gpio.RaspiPin;
 import com.pi4j.wiringpi.Gpio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.lang.invoke.MethodHandles;
 import nl.jpoint.trojkaracer.car.domain.car.CarEngine;
 import nl.jpoint.trojkaracer.car.domain.car.Direction;
@@ -16,6 +18,8 @@ import org.springframework.stereotype.Component;
 /**
  * Implementation of the {@link CarEngine} interface; this implementation controls the car engine through the use of the hardware PWM pins that are
  * onboard of the Raspberry Pi. It uses GPIO_23 pin to control the steering/direction and the GPIO_26 pin to control the motor/speed.
+ * <p>A PWM value is only written to a pin when it differs from the value written last, so repeating the same speed or direction does not
+ * cost a hardware write. The number of issued and suppressed writes is exposed as the <code>trojkaracer.engine.pwm.writes</code> counter.</p>
  */
 @Component("carEngine")
 @Profile("production")
@@ -27,45 +31,97 @@ public class PiOnboardPWMCarEngine implements CarEngine {
     private static final int PWM_EFFECTIVE_RANGE = 75;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String PWM_WRITES_COUNTER_NAME = "trojkaracer.engine.pwm.writes";
 
-    private final GpioPinPwmOutput motorPin;
-    private final GpioPinPwmOutput steeringPin;
+    private final PwmOutput motorOutput;
+    private final PwmOutput steeringOutput;
+    private final Counter issuedWrites;
+    private final Counter suppressedWrites;
 
     /**
      * Instantiates and initializes the car engine; it initializes the pins and sets all signals to their neutral positions.
      * @param gpioController the Raspberry Pi GpioController.
+     * @param meterRegistry the registry to register the counters of the PWM writes in.
      */
-    public PiOnboardPWMCarEngine(final GpioController gpioController) {
+    public PiOnboardPWMCarEngine(final GpioController gpioController, final MeterRegistry meterRegistry) {
         LOGGER.info("Creating and initializing a new car engine (carEngine = '{}')", this.getClass().getSimpleName());
 
+        issuedWrites = Counter.builder(PWM_WRITES_COUNTER_NAME)
+                .description("Number of PWM values written to the pins of the engine, or suppressed because they did not change")
+                .tag("result", "issued")
+                .register(meterRegistry);
+        suppressedWrites = Counter.builder(PWM_WRITES_COUNTER_NAME)
+                .description("Number of PWM values written to the pins of the engine, or suppressed because they did not change")
+                .tag("result", "suppressed")
+                .register(meterRegistry);
+
         // Initialize the hardware
-        motorPin = gpioController.provisionPwmOutputPin(RaspiPin.GPIO_26);
-        steeringPin = gpioController.provisionPwmOutputPin(RaspiPin.GPIO_23);
+        final GpioPinPwmOutput motorPin = gpioController.provisionPwmOutputPin(RaspiPin.GPIO_26);
+        final GpioPinPwmOutput steeringPin = gpioController.provisionPwmOutputPin(RaspiPin.GPIO_23);
         Gpio.pwmSetMode(Gpio.PWM_MODE_MS);
         Gpio.pwmSetRange(PWM_RANGE);
         Gpio.pwmSetClock(PWM_CLOCK);
 
         motorPin.setPwm(PWM_NEUTRAL);
         steeringPin.setPwm(PWM_NEUTRAL);
+        motorOutput = new PwmOutput(motorPin, PWM_NEUTRAL);
+        steeringOutput = new PwmOutput(steeringPin, PWM_NEUTRAL);
     }
 
     @Override
-    public void updateMotor(final Speed speed) {
-        int pwmSpeed = PWM_NEUTRAL;
-        int speedAdjustment = speed.getSpeedAsPercentage() * PWM_EFFECTIVE_RANGE / 100;
+    public synchronized void updateMotor(final Speed speed) {
+        write(motorOutput, toPwmSpeed(speed));
+    }
 
-        pwmSpeed += speedAdjustment;
-        LOGGER.debug("Setting PWM Speed to {}", pwmSpeed);
-        motorPin.setPwm(pwmSpeed);
+    @Override
+    public synchronized void updateDirection(final Direction direction) {
+        write(steeringOutput, toPwmDirection(direction));
     }
 
     @Override
-    public void updateDirection(final Direction direction) {
-        int pwmDirection = PWM_NEUTRAL;
-        int directionAdjustment = direction.getDegreesAsPercentage() * PWM_EFFECTIVE_RANGE / 100;
+    public synchronized void update(final Speed speed, final Direction direction) {
+        write(motorOutput, toPwmSpeed(speed));
+        write(steeringOutput, toPwmDirection(direction));
+    }
+
+    public double getIssuedWrites() {
+        return issuedWrites.count();
+    }
+
+    public double getSuppressedWrites() {
+        return suppressedWrites.count();
+    }
+
+    private static int toPwmSpeed(final Speed speed) {
+        return PWM_NEUTRAL + speed.getSpeedAsPercentage() * PWM_EFFECTIVE_RANGE / 100;
+    }
+
+    private static int toPwmDirection(final Direction direction) {
+        return PWM_NEUTRAL + direction.getDegreesAsPercentage() * PWM_EFFECTIVE_RANGE / 100;
+    }
+
+    private void write(final PwmOutput output, final int pwmValue) {
+        if (output.value == pwmValue) {
+            suppressedWrites.increment();
+            return;
+        }
+
+        LOGGER.trace("Setting PWM of pin {} to {}", output.pin.getName(), pwmValue);
+        output.pin.setPwm(pwmValue);
+        output.value = pwmValue;
+        issuedWrites.increment();
+    }
+
+    /**
+     * A PWM pin together with the value written to it last.
+     */
+    private static final class PwmOutput {
+        private final GpioPinPwmOutput pin;
+        private int value;
 
-        pwmDirection += directionAdjustment;
-        LOGGER.debug("Setting PWM Direction to {}", pwmDirection);
-        steeringPin.setPwm(pwmDirection);
+        private PwmOutput(final GpioPinPwmOutput pin, final int value) {
+            this.pin = pin;
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,51 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the raw frame recording files written by the {@link RawFrameRecorder} and read by the {@link RawRecordingFrameSource}. A file
+ * starts with a file header, followed by fixed-size records; every record holds a record header followed by the pixel bytes of a single
+ * frame. All frames in a file have the same dimensions and type, so record <i>n</i> always starts at
+ * <code>FILE_HEADER_SIZE + n * recordSize</code>. All numbers are written in the native byte order of the recording machine.
+ * <pre>
+ * file header:   int magic, int version, int width, int height, int type, int recordSize, int maxRecords, int recordCount
+ * record header: long sequenceNumber, long captureTimestamp, int width, int height, int type, int imageSize
+ * </pre>
+ * <p>The record count in the file header is only updated after a record is completely written, so records beyond it must be ignored.</p>
+ */
+final class RawFrameFormat {
+
+    static final String FILE_EXTENSION = ".raw";
+
+    static final int MAGIC = 0x544A4B52;
+    static final int VERSION = 1;
+
+    static final int FILE_HEADER_SIZE = 32;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int WIDTH_OFFSET = 8;
+    static final int HEIGHT_OFFSET = 12;
+    static final int TYPE_OFFSET = 16;
+    static final int RECORD_SIZE_OFFSET = 20;
+    static final int MAX_RECORDS_OFFSET = 24;
+    static final int RECORD_COUNT_OFFSET = 28;
+
+    static final int RECORD_HEADER_SIZE = 32;
+    static final int SEQUENCE_NUMBER_OFFSET = 0;
+    static final int CAPTURE_TIMESTAMP_OFFSET = 8;
+    static final int RECORD_WIDTH_OFFSET = 16;
+    static final int RECORD_HEIGHT_OFFSET = 20;
+    static final int RECORD_TYPE_OFFSET = 24;
+    static final int IMAGE_SIZE_OFFSET = 28;
+
+    private RawFrameFormat() {
+    }
+
+    static int recordSize(final int imageSize) {
+        return RECORD_HEADER_SIZE + imageSize;
+    }
+
+    static int recordPosition(final ByteBuffer file, final int recordIndex) {
+        return FILE_HEADER_SIZE + recordIndex * file.getInt(RECORD_SIZE_OFFSET);
+    }
+}
@@ -0,0 +1,201 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Records the raw frames the car sees, at full frame rate, into pre-sized memory-mapped files (see {@link RawFrameFormat} for the layout).
+ * Every frame is a fixed-size record, copied from the native memory of the {@link Mat} straight into the mapping in a single bulk copy,
+ * without any encoding (see {@link DirectMemory}); on a JVM without direct memory access the frame is copied out of the Mat into a reused
+ * array and from there into the mapping instead. When a file is full (or the frame dimensions change) the recorder rotates to the next
+ * file and unmaps the full one right away, so only a single file is mapped at any time; when a maximum number of files is set, the oldest
+ * file is deleted on rotation.
+ * <p>The recorder is a consumer of the view publisher of its own, so a slow disk makes the recorder skip frames but never slows down the
+ * other consumers. Recordings can be replayed with the {@link ReplayViewRetriever}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "recording.enabled", havingValue = "true")
+public class RawFrameRecorder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final File directory;
+    private final String baseName;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final Deque<File> recordedFiles = new ArrayDeque<>();
+    private final AtomicLong recordedFrames = new AtomicLong(0);
+    private final Disposable subscription;
+
+    // Only used when direct memory access is not available
+    private byte[] imageBuffer = new byte[0];
+    private MappedByteBuffer currentFile;
+    private int fileIndex;
+    private int width;
+    private int height;
+    private int type;
+    private int imageSize;
+    private int maxRecords;
+    private int recordIndex;
+
+    public RawFrameRecorder(final Flux<Frame> viewPublisher,
+                            @Value("${recording.directory}") final String directory,
+                            @Value("${recording.base.name:frames}") final String baseName,
+                            @Value("${recording.file.size.mb:256}") final long maxFileSizeInMegabytes,
+                            @Value("${recording.max.files:0}") final int maxFiles) {
+        LOGGER.info("Recording raw frames to {} in files of at most {} MB.", directory, maxFileSizeInMegabytes);
+
+        this.directory = new File(directory);
+        this.baseName = baseName;
+        this.maxFileSize = Math.min(Integer.MAX_VALUE, maxFileSizeInMegabytes * BYTES_PER_MEGABYTE);
+        this.maxFiles = maxFiles;
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IllegalArgumentException(String.format("Unable to create the recording directory (directory: %s)", directory));
+        }
+
+        this.subscription = viewPublisher.subscribe(this::record, e -> LOGGER.error("Stopped recording frames.", e));
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        subscription.dispose();
+        closeCurrentFile();
+        LOGGER.info("Stopped recording after {} frames.", recordedFrames.get());
+    }
+
+    public long getRecordedFrames() {
+        return recordedFrames.get();
+    }
+
+    /**
+     * Appends the frame to the current recording file, rotating to a new file when the current one is full or the frame has other dimensions
+     * than the frames before it.
+     * @param frame the frame to record.
+     */
+    synchronized void record(final Frame frame) {
+        if (frame.getImage().empty()) {
+            return;
+        }
+
+        final Mat image = frame.getImage().isContinuous() ? frame.getImage() : frame.getImage().clone();
+        final int frameImageSize = (int) (image.total() * image.elemSize());
+
+        if (currentFile == null || recordIndex >= maxRecords
+                || image.cols() != width || image.rows() != height || image.type() != type || frameImageSize != imageSize) {
+            openNextFile(image, frameImageSize);
+        }
+
+        final int position = RawFrameFormat.recordPosition(currentFile, recordIndex);
+        currentFile.putLong(position + RawFrameFormat.SEQUENCE_NUMBER_OFFSET, frame.getSequenceNumber());
+        currentFile.putLong(position + RawFrameFormat.CAPTURE_TIMESTAMP_OFFSET, frame.getCaptureTimestamp());
+        currentFile.putInt(position + RawFrameFormat.RECORD_WIDTH_OFFSET, width);
+        currentFile.putInt(position + RawFrameFormat.RECORD_HEIGHT_OFFSET, height);
+        currentFile.putInt(position + RawFrameFormat.RECORD_TYPE_OFFSET, type);
+        currentFile.putInt(position + RawFrameFormat.IMAGE_SIZE_OFFSET, frameImageSize);
+        copyImage(image, position + RawFrameFormat.RECORD_HEADER_SIZE, frameImageSize);
+
+        recordIndex++;
+        currentFile.putInt(RawFrameFormat.RECORD_COUNT_OFFSET, recordIndex);
+        recordedFrames.incrementAndGet();
+
+        if (image != frame.getImage()) {
+            image.release();
+        }
+    }
+
+    private void copyImage(final Mat image, final int position, final int size) {
+        if (DirectMemory.isAvailable()) {
+            DirectMemory.copy(image.dataAddr(), currentFile, position, size);
+            return;
+        }
+
+        if (imageBuffer.length < size) {
+            imageBuffer = new byte[size];
+        }
+        image.get(0, 0, imageBuffer);
+        currentFile.position(position);
+        currentFile.put(imageBuffer, 0, size);
+    }
+
+    private void openNextFile(final Mat image, final int frameImageSize) {
+        closeCurrentFile();
+
+        final int recordSize = RawFrameFormat.recordSize(frameImageSize);
+        final int recordsPerFile = (int) ((maxFileSize - RawFrameFormat.FILE_HEADER_SIZE) / recordSize);
+        if (recordsPerFile < 1) {
+            throw new IllegalStateException(String.format("The maximum file size is too small to hold a single frame (recordSize: %s)", recordSize));
+        }
+
+        final File file = nextFreeFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            final long fileSize = RawFrameFormat.FILE_HEADER_SIZE + (long) recordsPerFile * recordSize;
+            randomAccessFile.setLength(fileSize);
+            currentFile = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(String.format("Unable to create the recording file (file: %s)", file), e);
+        }
+
+        currentFile.order(ByteOrder.nativeOrder());
+        currentFile.putInt(RawFrameFormat.MAGIC_OFFSET, RawFrameFormat.MAGIC);
+        currentFile.putInt(RawFrameFormat.VERSION_OFFSET, RawFrameFormat.VERSION);
+        currentFile.putInt(RawFrameFormat.WIDTH_OFFSET, image.cols());
+        currentFile.putInt(RawFrameFormat.HEIGHT_OFFSET, image.rows());
+        currentFile.putInt(RawFrameFormat.TYPE_OFFSET, image.type());
+        currentFile.putInt(RawFrameFormat.RECORD_SIZE_OFFSET, recordSize);
+        currentFile.putInt(RawFrameFormat.MAX_RECORDS_OFFSET, recordsPerFile);
+        currentFile.putInt(RawFrameFormat.RECORD_COUNT_OFFSET, 0);
+
+        width = image.cols();
+        height = image.rows();
+        type = image.type();
+        imageSize = frameImageSize;
+        maxRecords = recordsPerFile;
+        recordIndex = 0;
+
+        recordedFiles.addLast(file);
+        while (maxFiles > 0 && recordedFiles.size() > maxFiles) {
+            final File oldestFile = recordedFiles.removeFirst();
+            if (!oldestFile.delete()) {
+                LOGGER.warn("Unable to delete the oldest recording file {}.", oldestFile);
+            }
+        }
+        LOGGER.info("Recording {}x{} frames to {} ({} frames per file).", width, height, file, maxRecords);
+    }
+
+    private File nextFreeFile() {
+        File file;
+        do {
+            file = new File(directory, String.format("%s-%05d%s", baseName, fileIndex++, RawFrameFormat.FILE_EXTENSION));
+        } while (file.exists());
+        return file;
+    }
+
+    private void closeCurrentFile() {
+        if (currentFile != null) {
+            currentFile.force();
+            DirectMemory.unmap(currentFile);
+            currentFile = null;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.opencv.core.Mat;
+
+/**
+ * {@link RecordedFrameSource} that reads the frames recorded by the {@link RawFrameRecorder}: a single recording file, or all recording
+ * files in a directory in the order of their names. Only the file that is being read is memory-mapped (read only), and it is unmapped as
+ * soon as the reading moves on to the next file or starts over, so the replay never maps more than a single file on the 32-bit Raspberry
+ * Pi. A frame is copied from the mapping into its {@link Mat} in a single bulk copy (see {@link DirectMemory}); on a JVM without direct
+ * memory access it is copied into a reused array and from there into the Mat instead.
+ */
+class RawRecordingFrameSource implements RecordedFrameSource {
+
+    private final List<File> files = new ArrayList<>();
+    private final double framesPerSecond;
+
+    // Only used when direct memory access is not available
+    private byte[] imageBuffer = new byte[0];
+    private MappedByteBuffer currentFile;
+    private int fileIndex;
+    private int recordIndex = -1;
+
+    RawRecordingFrameSource(final File source, final double defaultFramesPerSecond) {
+        final File[] recordingFiles = source.isDirectory() ? source.listFiles(RawRecordingFrameSource::isRecording) : new File[] { source };
+        double recordedFramesPerSecond = defaultFramesPerSecond;
+        if (recordingFiles != null) {
+            Arrays.sort(recordingFiles);
+            for (final File file : recordingFiles) {
+                // Every file is only mapped while it is checked, one after the other
+                final MappedByteBuffer mappedFile = map(file);
+                try {
+                    if (mappedFile.getInt(RawFrameFormat.RECORD_COUNT_OFFSET) > 0) {
+                        if (files.isEmpty()) {
+                            recordedFramesPerSecond = determineFramesPerSecond(mappedFile, defaultFramesPerSecond);
+                        }
+                        files.add(file);
+                    }
+                } finally {
+                    DirectMemory.unmap(mappedFile);
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException(String.format("No recorded frames found (source: %s)", source));
+        }
+
+        this.framesPerSecond = recordedFramesPerSecond;
+    }
+
+    static boolean isRecording(final File file) {
+        return file.isFile() && file.getName().endsWith(RawFrameFormat.FILE_EXTENSION);
+    }
+
+    private static MappedByteBuffer map(final File file) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            final MappedByteBuffer mappedFile = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            mappedFile.order(ByteOrder.nativeOrder());
+            if (mappedFile.getInt(RawFrameFormat.MAGIC_OFFSET) != RawFrameFormat.MAGIC
+                    || mappedFile.getInt(RawFrameFormat.VERSION_OFFSET) != RawFrameFormat.VERSION) {
+                throw new IllegalArgumentException(String.format("Not a raw frame recording of a supported version (file: %s)", file));
+            }
+            return mappedFile;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(String.format("Unable to read the recording file (file: %s)", file), e);
+        }
+    }
+
+    /**
+     * Determines the recorded frame rate from the capture timestamps of the first and the last frame in the file.
+     */
+    private static double determineFramesPerSecond(final MappedByteBuffer file, final double defaultFramesPerSecond) {
+        final int recordCount = file.getInt(RawFrameFormat.RECORD_COUNT_OFFSET);
+        if (recordCount < 2) {
+            return defaultFramesPerSecond;
+        }
+
+        final long firstTimestamp = file.getLong(RawFrameFormat.recordPosition(file, 0) + RawFrameFormat.CAPTURE_TIMESTAMP_OFFSET);
+        final long lastTimestamp = file.getLong(RawFrameFormat.recordPosition(file, recordCount - 1) + RawFrameFormat.CAPTURE_TIMESTAMP_OFFSET);
+        if (lastTimestamp <= firstTimestamp) {
+            return defaultFramesPerSecond;
+        }
+        return (recordCount - 1) * (double) TimeUnit.SECONDS.toNanos(1) / (lastTimestamp - firstTimestamp);
+    }
+
+    @Override
+    public boolean grab() {
+        if (currentFile == null) {
+            openFile(0);
+        }
+        if (recordIndex + 1 < currentFile.getInt(RawFrameFormat.RECORD_COUNT_OFFSET)) {
+            recordIndex++;
+            return true;
+        }
+        if (fileIndex + 1 < files.size()) {
+            openFile(fileIndex + 1);
+            recordIndex = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean retrieve(final Mat destination) {
+        if (currentFile == null || recordIndex < 0) {
+            return false;
+        }
+
+        final MappedByteBuffer file = currentFile;
+        final int position = RawFrameFormat.recordPosition(file, recordIndex);
+        final int imageSize = file.getInt(position + RawFrameFormat.IMAGE_SIZE_OFFSET);
+        destination.create(file.getInt(position + RawFrameFormat.RECORD_HEIGHT_OFFSET), file.getInt(position + RawFrameFormat.RECORD_WIDTH_OFFSET),
+                file.getInt(position + RawFrameFormat.RECORD_TYPE_OFFSET));
+        if (destination.total() * destination.elemSize() != imageSize) {
+            throw new IllegalStateException(String.format("The recorded image size does not match its dimensions (file: %s, record: %s)",
+                    files.get(fileIndex), recordIndex));
+        }
+
+        if (DirectMemory.isAvailable()) {
+            DirectMemory.copy(file, position + RawFrameFormat.RECORD_HEADER_SIZE, destination.dataAddr(), imageSize);
+            return true;
+        }
+
+        if (imageBuffer.length < imageSize) {
+            imageBuffer = new byte[imageSize];
+        }
+        final ByteBuffer record = file.duplicate();
+        record.position(position + RawFrameFormat.RECORD_HEADER_SIZE);
+        record.get(imageBuffer, 0, imageSize);
+        destination.put(0, 0, imageBuffer);
+        return true;
+    }
+
+    @Override
+    public void rewind() {
+        closeCurrentFile();
+        fileIndex = 0;
+        recordIndex = -1;
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public void release() {
+        closeCurrentFile();
+        files.clear();
+    }
+
+    private void openFile(final int index) {
+        closeCurrentFile();
+        currentFile = map(files.get(index));
+        fileIndex = index;
+        recordIndex = -1;
+    }
+
+    private void closeCurrentFile() {
+        if (currentFile != null) {
+            DirectMemory.unmap(currentFile);
+            currentFile = null;
+        }
+    }
+}
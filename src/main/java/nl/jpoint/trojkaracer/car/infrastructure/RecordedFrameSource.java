@@ -0,0 +1,36 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import org.opencv.core.Mat;
+
+/**
+ * A source of recorded frames, read one frame after the other, in the same grab/retrieve fashion as a camera: skipping a frame only needs
+ * a {@link #grab()}, while the (expensive) decoding of a frame into a {@link Mat} is only done by {@link #retrieve(Mat)}.
+ */
+interface RecordedFrameSource {
+
+    /**
+     * Advances to the next frame.
+     * @return true when there was a next frame, false when the end of the recording has been reached.
+     */
+    boolean grab();
+
+    /**
+     * Copies (decodes) the frame that was grabbed last into the destination.
+     * @param destination the Mat to copy the frame into.
+     * @return true when the frame could be retrieved.
+     */
+    boolean retrieve(Mat destination);
+
+    /**
+     * Moves back to the start of the recording; the next grab returns the first frame again.
+     */
+    void rewind();
+
+    /**
+     * Returns the rate (in frames per second) at which the frames were recorded.
+     * @return the rate (in frames per second) at which the frames were recorded.
+     */
+    double getFramesPerSecond();
+
+    void release();
+}
@@ -0,0 +1,207 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PreDestroy;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import nl.jpoint.trojkaracer.car.domain.ViewRetriever;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Implementation of the {@link ViewRetriever} that replays a recording (a video file, a directory with an image sequence, or the raw frames
+ * recorded by the {@link RawFrameRecorder}) instead of reading a camera, so the complete pipeline can be run without a camera. The recording
+ * is replayed in one of two modes:
+ * <ul>
+ *     <li>{@link ReplayMode#REAL_TIME}: the recording behaves like a camera running at the recorded frame rate; every frame is published
+ *     the moment it would be in front of the camera, and frames are skipped when reading the recording falls behind.</li>
+ *     <li>{@link ReplayMode#AS_FAST_AS_POSSIBLE}: the next frame is only read when it is requested, so no frame is skipped and the
+ *     consumers set the pace; used to measure the maximum throughput of the pipeline. When not looping, the replay completes at the end of
+ *     the recording.</li>
+ * </ul>
+ * <p>The recording is read on a replay thread of its own. Activated by the <code>replay</code> profile, which replaces the camera.</p>
+ */
+@Component
+@Profile("replay")
+public class ReplayViewRetriever implements ViewRetriever {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final RecordedFrameSource frameSource;
+    private final ReplayMode replayMode;
+    private final boolean loop;
+    private final long frameIntervalNanos;
+
+    private final Scheduler replayScheduler = Schedulers.newSingle("replay", true);
+    private final Mat currentFrame = new Mat();
+    private long sequenceNumber;
+    private long startTimestamp;
+    private long currentFrameIndex = -1;
+    private boolean finished;
+    private boolean stopped;
+
+    public ReplayViewRetriever(@Value("${replay.source}") final String source,
+                               @Value("${replay.mode:REAL_TIME}") final ReplayMode replayMode,
+                               @Value("${replay.loop:true}") final boolean loop,
+                               @Value("${replay.image.sequence.fps:30}") final double imageSequenceFramesPerSecond) {
+        this(openFrameSource(source, imageSequenceFramesPerSecond), replayMode, loop);
+    }
+
+    ReplayViewRetriever(final RecordedFrameSource frameSource, final ReplayMode replayMode, final boolean loop) {
+        LOGGER.info("Replaying a recording at {} frames per second in {} mode.", frameSource.getFramesPerSecond(), replayMode);
+
+        this.frameSource = frameSource;
+        this.replayMode = replayMode;
+        this.loop = loop;
+        this.frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / frameSource.getFramesPerSecond());
+    }
+
+    private static RecordedFrameSource openFrameSource(final String source, final double imageSequenceFramesPerSecond) {
+        final File file = new File(source);
+        if (RawRecordingFrameSource.isRecording(file) || isRawRecordingDirectory(file)) {
+            return new RawRecordingFrameSource(file, imageSequenceFramesPerSecond);
+        }
+        if (file.isDirectory()) {
+            return new ImageSequenceFrameSource(file, imageSequenceFramesPerSecond);
+        }
+        return new VideoFileFrameSource(source, imageSequenceFramesPerSecond);
+    }
+
+    private static boolean isRawRecordingDirectory(final File file) {
+        final File[] recordingFiles = file.listFiles(RawRecordingFrameSource::isRecording);
+        return recordingFiles != null && recordingFiles.length > 0;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        replayScheduler.dispose();
+        frameSource.release();
+        currentFrame.release();
+    }
+
+    @Override
+    public Flux<Frame> getFrames() {
+        // The last published frame is only released when the next frame is read, or when the replay ends: by then it was delivered
+        final Flux<Frame> frames = Flux.<Frame, Frame[]>generate(() -> new Frame[1], (lastFrame, sink) -> {
+            final Frame frame = nextFrame();
+            release(lastFrame[0]);
+            lastFrame[0] = frame;
+            if (frame == null) {
+                sink.complete();
+            } else {
+                sink.next(frame);
+            }
+            return lastFrame;
+        }, lastFrame -> release(lastFrame[0]))
+                .subscribeOn(replayScheduler);
+        return isDemandDriven() ? frames : frames.onBackpressureDrop();
+    }
+
+    /**
+     * Returns whether the frames are only read when they are requested, which is the case when replaying as fast as possible.
+     */
+    @Override
+    public boolean isDemandDriven() {
+        return replayMode == ReplayMode.AS_FAST_AS_POSSIBLE;
+    }
+
+    private static void release(final Frame frame) {
+        if (frame != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * Reads the next frame to publish, waiting until it is due in real time mode.
+     * @return the next frame, or <code>null</code> when the replay was stopped or, when replaying as fast as possible, reached the end of
+     * the recording.
+     */
+    private synchronized Frame nextFrame() {
+        if (stopped) {
+            return null;
+        }
+
+        final long captureTimestamp;
+        if (replayMode == ReplayMode.REAL_TIME) {
+            captureTimestamp = advanceToRealTimeFrame();
+        } else {
+            advance(1);
+            if (finished) {
+                return null;
+            }
+            captureTimestamp = System.nanoTime();
+        }
+
+        final Mat view = new Mat();
+        currentFrame.copyTo(view);
+        return Frame.of(++sequenceNumber, captureTimestamp, view);
+    }
+
+    /**
+     * Advances to the frame that is due at this moment, waiting for the next frame when the current frame was already retrieved.
+     * @return the moment the frame was due, used as its capture timestamp.
+     */
+    private long advanceToRealTimeFrame() {
+        long now = System.nanoTime();
+        if (currentFrameIndex < 0) {
+            startTimestamp = now;
+        }
+
+        long dueFrameIndex = (now - startTimestamp) / frameIntervalNanos;
+        if (dueFrameIndex <= currentFrameIndex) {
+            dueFrameIndex = currentFrameIndex + 1;
+            final long dueTimestamp = startTimestamp + dueFrameIndex * frameIntervalNanos;
+            while ((now = System.nanoTime()) < dueTimestamp) {
+                LockSupport.parkNanos(dueTimestamp - now);
+            }
+        }
+
+        advance(dueFrameIndex - currentFrameIndex);
+        return startTimestamp + dueFrameIndex * frameIntervalNanos;
+    }
+
+    /**
+     * Advances the given number of frames, only decoding the last one. At the end of the recording the replay either starts over or, when not
+     * looping, finishes: a real time replay keeps returning the last frame, a replay as fast as possible completes.
+     */
+    private void advance(final long numberOfFrames) {
+        boolean grabbed = false;
+        for (long i = 0; i < numberOfFrames && !finished; i++) {
+            if (!frameSource.grab()) {
+                if (!loop) {
+                    LOGGER.info("Reached the end of the recording after {} frames.", currentFrameIndex + 1);
+                    finished = true;
+                    break;
+                }
+                frameSource.rewind();
+                if (!frameSource.grab()) {
+                    throw new IllegalStateException("Unable to read the first frame of the recording after rewinding it.");
+                }
+            }
+            grabbed = true;
+        }
+        currentFrameIndex += numberOfFrames;
+
+        if (grabbed) {
+            frameSource.retrieve(currentFrame);
+        }
+    }
+
+    /**
+     * The speed at which the recording is replayed.
+     */
+    public enum ReplayMode {
+        REAL_TIME,
+        AS_FAST_AS_POSSIBLE
+    }
+}
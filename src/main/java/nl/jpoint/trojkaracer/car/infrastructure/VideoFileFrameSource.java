@@ -0,0 +1,49 @@
+package nl.jpoint.trojkaracer.car.infrastructure;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * {@link RecordedFrameSource} that reads the frames of a video file.
+ */
+class VideoFileFrameSource implements RecordedFrameSource {
+
+    private final VideoCapture video;
+    private final double framesPerSecond;
+
+    VideoFileFrameSource(final String fileName, final double defaultFramesPerSecond) {
+        this.video = new VideoCapture(fileName);
+        if (!video.isOpened()) {
+            throw new IllegalArgumentException(String.format("Unable to open the video file (fileName: %s)", fileName));
+        }
+
+        final double recordedFramesPerSecond = video.get(Videoio.CAP_PROP_FPS);
+        this.framesPerSecond = recordedFramesPerSecond > 0 ? recordedFramesPerSecond : defaultFramesPerSecond;
+    }
+
+    @Override
+    public boolean grab() {
+        return video.grab();
+    }
+
+    @Override
+    public boolean retrieve(final Mat destination) {
+        return video.retrieve(destination);
+    }
+
+    @Override
+    public void rewind() {
+        video.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public void release() {
+        video.release();
+    }
+}
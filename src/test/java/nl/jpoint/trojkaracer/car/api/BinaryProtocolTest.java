@@ -0,0 +1,95 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import nl.jpoint.trojkaracer.car.domain.car.CarStatus;
+import nl.jpoint.trojkaracer.car.domain.car.Direction;
+import nl.jpoint.trojkaracer.car.domain.car.Speed;
+import nl.jpoint.trojkaracer.car.domain.driver.IncrementalDriveCommand;
+import nl.jpoint.trojkaracer.car.domain.race.RaceStatus;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * Unit tests for the {@link BinaryProtocol} class.
+ */
+public class BinaryProtocolTest {
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    public void shouldDecodeCarControl() {
+        final DataBuffer payload = bufferFactory.wrap(new byte[] {2});
+
+        final int control = BinaryProtocol.readControl(payload);
+
+        assertThat(BinaryProtocol.isCarControl(control), is(true));
+        assertThat(BinaryProtocol.toDriveCommand(control),
+                is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.LEFT)));
+    }
+
+    @Test
+    public void shouldRejectInvalidControl() {
+        assertThat(BinaryProtocol.readControl(bufferFactory.wrap(new byte[0])), is(BinaryProtocol.INVALID));
+        assertThat(BinaryProtocol.isCarControl(BinaryProtocol.INVALID), is(false));
+        assertThat(BinaryProtocol.isCarControl(5), is(false));
+        assertThat(BinaryProtocol.isRaceControl(BinaryProtocol.readControl(bufferFactory.wrap(new byte[] {(byte) 0xFF}))), is(false));
+    }
+
+    @Test
+    public void shouldEncodeCarStatus() {
+        final CarStatus carStatus = CarStatus.builder().speed(new Speed(-100)).direction(new Direction(45)).build();
+
+        final DataBuffer buffer = BinaryProtocol.encode(carStatus, bufferFactory);
+
+        assertThat(buffer.readableByteCount(), is(3));
+        assertThat(buffer.read(), is(BinaryProtocol.CAR_STATUS));
+        assertThat(buffer.read(), is((byte) -100));
+        assertThat(buffer.read(), is((byte) 45));
+    }
+
+    @Test
+    public void shouldEncodeRaceStatus() {
+        final DataBuffer buffer = BinaryProtocol.encode(RaceStatus.RACING, bufferFactory);
+
+        assertThat(buffer.readableByteCount(), is(2));
+        assertThat(buffer.read(), is(BinaryProtocol.RACE_STATUS));
+        assertThat(buffer.read(), is((byte) 2));
+    }
+
+    @Test
+    public void shouldKeepTheCarControlCodes() {
+        assertThat(BinaryProtocol.toDriveCommand(0), is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.FORWARD)));
+        assertThat(BinaryProtocol.toDriveCommand(1), is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.BACKWARD)));
+        assertThat(BinaryProtocol.toDriveCommand(2), is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.LEFT)));
+        assertThat(BinaryProtocol.toDriveCommand(3), is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.RIGHT)));
+        assertThat(BinaryProtocol.toDriveCommand(4), is(IncrementalDriveCommand.of(IncrementalDriveCommand.DriveDirection.STOP)));
+    }
+
+    @Test
+    public void shouldKeepTheRaceControlCodes() {
+        assertThat(BinaryProtocol.toRaceControlType(0), is(RaceControlEvent.Type.MANUAL));
+        assertThat(BinaryProtocol.toRaceControlType(1), is(RaceControlEvent.Type.INIT_RACE));
+        assertThat(BinaryProtocol.toRaceControlType(2), is(RaceControlEvent.Type.RACE));
+        assertThat(BinaryProtocol.toRaceControlType(3), is(RaceControlEvent.Type.STOP));
+        assertThat(BinaryProtocol.toRaceControlType(4), is(RaceControlEvent.Type.PAUSE));
+        assertThat(BinaryProtocol.toRaceControlType(5), is(RaceControlEvent.Type.CONTINUE));
+        assertThat(BinaryProtocol.isRaceControl(6), is(false));
+    }
+
+    @Test
+    public void shouldKeepTheRaceStatusCodes() {
+        assertThat(raceStatusCode(RaceStatus.MANUAL_DRIVING), is((byte) 0));
+        assertThat(raceStatusCode(RaceStatus.AWAITING_START_SIGNAL), is((byte) 1));
+        assertThat(raceStatusCode(RaceStatus.RACING), is((byte) 2));
+        assertThat(raceStatusCode(RaceStatus.RACING_PAUSED), is((byte) 3));
+    }
+
+    private byte raceStatusCode(final RaceStatus raceStatus) {
+        final DataBuffer buffer = BinaryProtocol.encode(raceStatus, bufferFactory);
+        buffer.read();
+        return buffer.read();
+    }
+}
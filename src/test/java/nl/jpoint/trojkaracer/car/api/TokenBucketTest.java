@@ -0,0 +1,44 @@
+package nl.jpoint.trojkaracer.car.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TokenBucket} class.
+ */
+public class TokenBucketTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    public void shouldAllowABurstUpToTheCapacity() {
+        final TokenBucket tokenBucket = new TokenBucket(10, 3, START);
+
+        assertThat(tokenBucket.tryTake(START), is(true));
+        assertThat(tokenBucket.tryTake(START), is(true));
+        assertThat(tokenBucket.tryTake(START), is(true));
+        assertThat(tokenBucket.tryTake(START), is(false));
+    }
+
+    @Test
+    public void shouldRefillAtTheRate() {
+        final TokenBucket tokenBucket = new TokenBucket(10, 1, START);
+        tokenBucket.tryTake(START);
+
+        assertThat(tokenBucket.tryTake(START + TimeUnit.MILLISECONDS.toNanos(50)), is(false));
+        assertThat(tokenBucket.tryTake(START + TimeUnit.MILLISECONDS.toNanos(100)), is(true));
+    }
+
+    @Test
+    public void shouldNotRefillBeyondTheCapacity() {
+        final TokenBucket tokenBucket = new TokenBucket(10, 2, START);
+        final long muchLater = START + TimeUnit.SECONDS.toNanos(10);
+
+        assertThat(tokenBucket.tryTake(muchLater), is(true));
+        assertThat(tokenBucket.tryTake(muchLater), is(true));
+        assertThat(tokenBucket.tryTake(muchLater), is(false));
+    }
+}
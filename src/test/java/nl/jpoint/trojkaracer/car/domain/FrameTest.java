@@ -0,0 +1,43 @@
+package nl.jpoint.trojkaracer.car.domain;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+/**
+ * Unit tests for the {@link Frame} class.
+ */
+public class FrameTest {
+
+    private final List<Mat> recycledImages = new ArrayList<>();
+    private final Frame frame = Frame.of(1, 100, null, recycledImages::add);
+
+    @Test
+    public void shouldRecycleTheImageWhenTheLastReferenceIsReleased() {
+        assertThat(frame.retain(), is(true));
+
+        frame.release();
+        assertThat(recycledImages.size(), is(0));
+
+        frame.release();
+        assertThat(recycledImages.size(), is(1));
+    }
+
+    @Test
+    public void shouldNotRetainAReleasedFrame() {
+        frame.release();
+
+        assertThat(frame.retain(), is(false));
+        assertThat(recycledImages.size(), is(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotReleaseMoreOftenThanRetained() {
+        frame.release();
+        frame.release();
+    }
+}
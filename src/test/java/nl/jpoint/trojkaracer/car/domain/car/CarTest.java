@@ -0,0 +1,155 @@
+package nl.jpoint.trojkaracer.car.domain.car;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import nl.jpoint.trojkaracer.car.domain.metrics.PipelineMetrics;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link Car} class.
+ */
+public class CarTest {
+
+    @Test
+    public void shouldPackTheSpeedAndDirection() {
+        final long state = Car.pack(3, -100, 60);
+
+        assertThat(Car.epochOf(state), is(3));
+        assertThat(Car.speedOf(state), is(-100));
+        assertThat(Car.directionOf(state), is(60));
+    }
+
+    @Test
+    public void shouldLetTheStopWinOverAConcurrentDrive() {
+        final RecordingCarEngine carEngine = new RecordingCarEngine();
+        final Car car = new Car(carEngine, PipelineMetrics.noop());
+        // The car is stopped while the engine is writing the drive command
+        carEngine.onWrite = () -> {
+            if (carEngine.speed == 50) {
+                car.stop();
+            }
+        };
+
+        car.drive(new Speed(50), new Direction(10));
+
+        assertThat(carEngine.speed, is(0));
+        assertThat(carEngine.direction, is(0));
+        assertThat(car.getStatus().getSpeed().getSpeedValue(), is(0));
+    }
+
+    @Test
+    public void shouldDropADriveThatWasOvertakenByAStop() {
+        final RecordingCarEngine carEngine = new RecordingCarEngine();
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final Car[] car = new Car[1];
+        // Another thread stops the car after the drive read the state, right before it commits its transition
+        car[0] = new Car(carEngine, PipelineMetrics.noop(), () -> {
+            if (stopped.compareAndSet(false, true)) {
+                final Thread stopper = new Thread(car[0]::stop);
+                stopper.start();
+                try {
+                    stopper.join();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        carEngine.onWrite = () -> assertThat(carEngine.speed, is(0));
+
+        car[0].drive(new Speed(50), new Direction(10));
+
+        assertTrue(stopped.get());
+        assertThat(car[0].getStatus().getSpeed().getSpeedValue(), is(0));
+        assertThat(car[0].getStatus().getDirection().getDegrees(), is(0));
+        assertThat(carEngine.speed, is(0));
+    }
+
+    @Test
+    public void shouldStopWhenDrivingAtZeroSpeedInTheNeutralDirection() {
+        final RecordingCarEngine carEngine = new RecordingCarEngine();
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final Car car = new Car(carEngine, PipelineMetrics.noop());
+        car.drive(new Speed(50), new Direction(10));
+        // A stop cancels the drives in flight, so a drive that is overtaken by the zero drive is dropped
+        final Car[] overtakenCar = new Car[1];
+        overtakenCar[0] = new Car(carEngine, PipelineMetrics.noop(), () -> {
+            if (stopped.compareAndSet(false, true)) {
+                overtakenCar[0].drive(new Speed(0), new Direction(0));
+            }
+        });
+
+        car.drive(new Speed(0), new Direction(0));
+        overtakenCar[0].drive(new Speed(50), new Direction(10));
+
+        assertThat(car.getStatus().getSpeed().getSpeedValue(), is(0));
+        assertThat(overtakenCar[0].getStatus().getSpeed().getSpeedValue(), is(0));
+        assertThat(carEngine.speed, is(0));
+        assertThat(carEngine.direction, is(0));
+    }
+
+    @Test
+    public void shouldStopWhenTheChangeIsNotAllowed() {
+        final RecordingCarEngine carEngine = new RecordingCarEngine();
+        final Car car = new Car(carEngine, PipelineMetrics.noop());
+        car.drive(new Speed(50), new Direction(0));
+
+        car.drive(new Speed(-50), new Direction(0));
+
+        assertThat(car.getStatus().getSpeed().getSpeedValue(), is(0));
+        assertThat(carEngine.speed, is(0));
+    }
+
+    @Test
+    public void shouldAlwaysReturnAConsistentStatus() throws InterruptedException {
+        final Car car = new Car(new RecordingCarEngine(), PipelineMetrics.noop());
+        final AtomicBoolean consistent = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // The writer only drives with equal speed and direction, so a mixed status would be visible
+        final Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                final int value = i % 2 == 0 ? 20 : 40;
+                car.drive(new Speed(value), new Direction(value));
+            }
+            done.countDown();
+        });
+        writer.start();
+        while (done.getCount() > 0) {
+            final CarStatus status = car.getStatus();
+            if (status.getSpeed().getSpeedValue() != status.getDirection().getDegrees()) {
+                consistent.set(false);
+            }
+        }
+        writer.join();
+
+        assertTrue(consistent.get());
+    }
+
+    private static final class RecordingCarEngine implements CarEngine {
+
+        private volatile int speed;
+        private volatile int direction;
+        private Runnable onWrite = () -> { };
+
+        @Override
+        public void updateMotor(final Speed speed) {
+            this.speed = speed.getSpeedValue();
+        }
+
+        @Override
+        public void updateDirection(final Direction direction) {
+            this.direction = direction.getDegrees();
+        }
+
+        @Override
+        public void update(final Speed speed, final Direction direction) {
+            updateMotor(speed);
+            updateDirection(direction);
+            onWrite.run();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ComputerVisionParameterSet} class.
+ */
+public class ComputerVisionParameterSetTest {
+
+    private final ComputerVisionParameterSet parameters = ComputerVisionParameterSet.defaults();
+
+    @Test
+    public void shouldChangeParametersWithinTheirDomain() {
+        assertThat(parameters.with(ComputerVisionParameters.BLUR_SIZE, 7).getBlurSize(), is(7));
+        assertThat(parameters.with(ComputerVisionParameters.CANNY_APERTURE_SIZE, 5).getCannyApertureSize(), is(5));
+        assertThat(parameters.with(ComputerVisionParameters.CANNY_THRESHOLD1, 0).getCannyThreshold1(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnEvenBlurSize() {
+        parameters.with(ComputerVisionParameters.BLUR_SIZE, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectANegativeBlurSize() {
+        parameters.with(ComputerVisionParameters.BLUR_SIZE, -3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAnUnsupportedCannyApertureSize() {
+        parameters.with(ComputerVisionParameters.CANNY_APERTURE_SIZE, 9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectANegativeCannyThreshold() {
+        parameters.with(ComputerVisionParameters.CANNY_THRESHOLD2, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAZeroHoughThreshold() {
+        parameters.with(ComputerVisionParameters.HOUGH_THRESHOLD, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAFractionalBlurSize() {
+        parameters.with(ComputerVisionParameters.BLUR_SIZE, 5.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAMissingParameter() {
+        parameters.with(null, 5);
+    }
+}
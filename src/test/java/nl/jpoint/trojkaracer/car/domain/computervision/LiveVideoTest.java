@@ -0,0 +1,52 @@
+package nl.jpoint.trojkaracer.car.domain.computervision;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import nl.jpoint.trojkaracer.car.domain.Frame;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+/**
+ * Unit tests for the {@link LiveVideo} class.
+ */
+public class LiveVideoTest {
+
+    private final LiveVideo liveVideo = new LiveVideo(new ComputerVisionHelper(System.getProperty("java.io.tmpdir")), 10, 20, 80);
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        liveVideo.stop();
+    }
+
+    @Test
+    public void shouldEncodeTheSubmittedFrameAsJpeg() {
+        final Frame frame = Frame.of(1, System.nanoTime(), new Mat(48, 64, CvType.CV_8UC3, new Scalar(0, 0, 255)));
+        liveVideo.submit(frame, new LaneSegments(0), 10, 0.5);
+        frame.release();
+
+        final byte[] image = liveVideo.getImages().blockFirst(Duration.ofSeconds(5));
+
+        // JPEG images start with the start of image marker
+        assertThat(image.length > 2, is(true));
+        assertThat(image[0], is((byte) 0xFF));
+        assertThat(image[1], is((byte) 0xD8));
+    }
+
+    @Test
+    public void shouldNotBeWatchedWithoutViewers() {
+        assertThat(liveVideo.isWatched(), is(false));
+        assertThat(LiveVideo.disabled().getImages().hasElements().block(), is(false));
+    }
+}
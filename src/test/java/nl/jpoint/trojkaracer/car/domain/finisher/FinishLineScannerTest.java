@@ -0,0 +1,54 @@
+package nl.jpoint.trojkaracer.car.domain.finisher;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link FinishLineScanner} class.
+ */
+public class FinishLineScannerTest {
+
+    private static final int WIDTH = 320;
+    private static final byte DARK = 30;
+    private static final byte LIGHT = (byte) 230;
+
+    @Test
+    public void shouldNotSeeTheFinishLineOnAnEmptyTrack() {
+        final byte[] row = new byte[WIDTH];
+        Arrays.fill(row, DARK);
+
+        assertThat(FinishLineScanner.isFinishLineRow(row, WIDTH, 1), is(false));
+    }
+
+    @Test
+    public void shouldNotSeeTheFinishLineInTheLaneLines() {
+        final byte[] row = new byte[WIDTH];
+        Arrays.fill(row, DARK);
+        Arrays.fill(row, 40, 50, LIGHT);
+        Arrays.fill(row, 270, 280, LIGHT);
+
+        assertThat(FinishLineScanner.isFinishLineRow(row, WIDTH, 1), is(false));
+    }
+
+    @Test
+    public void shouldSeeACheckeredFinishLine() {
+        final byte[] row = new byte[WIDTH];
+        for (int x = 0; x < WIDTH; x++) {
+            row[x] = (x / 20) % 2 == 0 ? DARK : LIGHT;
+        }
+
+        assertThat(FinishLineScanner.isFinishLineRow(row, WIDTH, 1), is(true));
+    }
+
+    @Test
+    public void shouldSeeALightFinishLineInAColorFrame() {
+        final byte[] row = new byte[WIDTH * 3];
+        Arrays.fill(row, LIGHT);
+        Arrays.fill(row, 0, 60 * 3, DARK);
+
+        assertThat(FinishLineScanner.isFinishLineRow(row, WIDTH, 3), is(true));
+    }
+}
@@ -0,0 +1,85 @@
+package nl.jpoint.trojkaracer.car.domain.navigator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import nl.jpoint.trojkaracer.car.domain.computervision.LaneSegments;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LaneCentreCalculator} class.
+ */
+public class LaneCentreCalculatorTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private LaneCentreCalculator laneCentreCalculator;
+    private LaneSegments laneSegments;
+
+    @Before
+    public void setUp() {
+        laneCentreCalculator = new LaneCentreCalculator();
+        laneSegments = new LaneSegments(4);
+        laneSegments.reset(WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void shouldDriveStraightWhenCentredBetweenLanes() {
+        addSegment(100, 480, 220, 280);
+        addSegment(540, 480, 420, 280);
+
+        assertThat(laneCentreCalculator.calculateSteering(laneSegments), is(0));
+        assertThat(laneCentreCalculator.isLeftLaneFound(), is(true));
+        assertThat(laneCentreCalculator.isRightLaneFound(), is(true));
+    }
+
+    @Test
+    public void shouldSteerRightWhenLaneCentreIsRightOfTheCar() {
+        addSegment(200, 480, 320, 280);
+        addSegment(640, 480, 520, 280);
+
+        assertTrue(laneCentreCalculator.calculateSteering(laneSegments) > 0);
+        assertTrue(laneCentreCalculator.getOffset() > 0);
+    }
+
+    @Test
+    public void shouldSteerLeftWhenLaneBendsLeft() {
+        addSegment(100, 480, 140, 280);
+        addSegment(540, 480, 300, 280);
+
+        assertTrue(laneCentreCalculator.calculateSteering(laneSegments) < 0);
+        assertTrue(laneCentreCalculator.getHeadingDegrees() < 0);
+    }
+
+    @Test
+    public void shouldUseLastLaneWidthWhenOnlyOneLaneIsVisible() {
+        addSegment(100, 480, 220, 280);
+        addSegment(540, 480, 420, 280);
+        laneCentreCalculator.calculateSteering(laneSegments);
+
+        laneSegments.reset(WIDTH, HEIGHT);
+        addSegment(100, 480, 220, 280);
+
+        assertThat(laneCentreCalculator.calculateSteering(laneSegments), is(0));
+        assertThat(laneCentreCalculator.isRightLaneFound(), is(false));
+    }
+
+    @Test
+    public void shouldKeepSteeringWhenNoLaneIsVisible() {
+        addSegment(200, 480, 320, 280);
+        addSegment(640, 480, 520, 280);
+        final int steering = laneCentreCalculator.calculateSteering(laneSegments);
+
+        laneSegments.reset(WIDTH, HEIGHT);
+
+        assertThat(laneCentreCalculator.calculateSteering(laneSegments), is(steering));
+        assertThat(laneCentreCalculator.isLaneFound(), is(false));
+    }
+
+    private void addSegment(final double x1, final double y1, final double x2, final double y2) {
+        assertThat(laneSegments.addIfSlopeWithin(x1, y1, x2, y2, 0.2, 15), is(true));
+    }
+}
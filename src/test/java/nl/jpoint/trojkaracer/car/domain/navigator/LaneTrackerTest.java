@@ -0,0 +1,87 @@
+package nl.jpoint.trojkaracer.car.domain.navigator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LaneTracker} class.
+ */
+public class LaneTrackerTest {
+
+    private static final double WIDTH = 640;
+    private static final double NEAR_Y = 480;
+    private static final double FAR_Y = 288;
+
+    private LaneTracker laneTracker;
+
+    @Before
+    public void setUp() {
+        laneTracker = new LaneTracker(3);
+    }
+
+    @Test
+    public void shouldSearchTheWholeRegionOfInterestUntilBothLanesAreTracked() {
+        assertThat(laneTracker.getSearchWindows().isEmpty(), is(true));
+
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, false, 0, 0);
+        assertThat(laneTracker.getLeftLane().isTracked(), is(true));
+        assertThat(laneTracker.getSearchWindows().isEmpty(), is(true));
+
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, true, 540, 420);
+        assertThat(laneTracker.getSearchWindows().size(), is(2));
+        assertTrue(Math.abs(laneTracker.getSearchWindows().getXAt(0, NEAR_Y) - 100) < 1);
+        assertTrue(Math.abs(laneTracker.getSearchWindows().getXAt(1, FAR_Y) - 420) < 1);
+    }
+
+    @Test
+    public void shouldSmoothTheMeasurements() {
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, true, 540, 420);
+
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 120, 220, true, 540, 420);
+
+        final double nearX = laneTracker.getLeftLane().getNearX();
+        assertTrue(nearX > 100 && nearX < 120);
+    }
+
+    @Test
+    public void shouldRejectOutliers() {
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, true, 540, 420);
+
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 400, 220, true, 540, 420);
+
+        assertThat(laneTracker.getLeftLane().getNearX(), is(100d));
+        assertThat(laneTracker.getLeftLane().getMisses(), is(1));
+    }
+
+    @Test
+    public void shouldLoseTheLaneAfterTooManyMisses() {
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, true, 540, 420);
+
+        for (int i = 0; i < 3; i++) {
+            laneTracker.update(WIDTH, NEAR_Y, FAR_Y, false, 0, 0, true, 540, 420);
+            assertThat(laneTracker.getLeftLane().isTracked(), is(true));
+        }
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, false, 0, 0, true, 540, 420);
+
+        assertThat(laneTracker.getLeftLane().isTracked(), is(false));
+        assertThat(laneTracker.getSearchWindows().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldRaiseConfidenceWithConsistentMeasurementsAndLowerItWithMisses() {
+        assertThat(laneTracker.getConfidence(), is(0d));
+
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 100, 220, true, 540, 420);
+        final double initialConfidence = laneTracker.getConfidence();
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, true, 101, 219, true, 539, 421);
+        final double trackedConfidence = laneTracker.getConfidence();
+        laneTracker.update(WIDTH, NEAR_Y, FAR_Y, false, 0, 0, false, 0, 0);
+
+        assertTrue(trackedConfidence > initialConfidence);
+        assertTrue(laneTracker.getConfidence() < trackedConfidence);
+    }
+}
@@ -0,0 +1,56 @@
+package nl.jpoint.trojkaracer.car.domain.starter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link StartLightDetector} class.
+ */
+public class StartLightDetectorTest {
+
+    private static final int LIT = 100;
+    private static final int DARK = 0;
+
+    private StartLightDetector startLightDetector;
+
+    @Before
+    public void setUp() {
+        startLightDetector = new StartLightDetector(10, 2);
+    }
+
+    @Test
+    public void shouldNotStartWithoutHavingSeenTheLightOn() {
+        assertThat(startLightDetector.process(DARK, 1), is(false));
+        assertThat(startLightDetector.process(DARK, 2), is(false));
+        assertThat(startLightDetector.process(DARK, 3), is(false));
+    }
+
+    @Test
+    public void shouldStartWhenTheLightWasConfirmedOnAndOff() {
+        assertThat(startLightDetector.process(LIT, 1), is(false));
+        assertThat(startLightDetector.process(LIT, 2), is(false));
+        assertThat(startLightDetector.isLightOn(), is(true));
+
+        assertThat(startLightDetector.process(DARK, 3), is(false));
+        assertThat(startLightDetector.process(DARK, 4), is(true));
+        assertThat(startLightDetector.getLightOffCaptureTimestamp(), is(3L));
+    }
+
+    @Test
+    public void shouldIgnoreASingleNoisyFrame() {
+        startLightDetector.process(LIT, 1);
+        assertThat(startLightDetector.process(DARK, 2), is(false));
+        assertThat(startLightDetector.process(LIT, 3), is(false));
+        assertThat(startLightDetector.isLightOn(), is(false));
+
+        startLightDetector.process(LIT, 4);
+        startLightDetector.process(DARK, 5);
+        assertThat(startLightDetector.process(LIT, 6), is(false));
+        assertThat(startLightDetector.process(DARK, 7), is(false));
+        assertThat(startLightDetector.process(DARK, 8), is(true));
+        assertThat(startLightDetector.getLightOffCaptureTimestamp(), is(7L));
+    }
+}
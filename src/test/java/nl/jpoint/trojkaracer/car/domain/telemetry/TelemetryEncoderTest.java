@@ -0,0 +1,60 @@
+package nl.jpoint.trojkaracer.car.domain.telemetry;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import nl.jpoint.trojkaracer.car.domain.telemetry.TelemetryRecord.Field;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TelemetryEncoder} class.
+ */
+public class TelemetryEncoderTest {
+
+    private final TelemetryEncoder encoder = new TelemetryEncoder();
+
+    @Test
+    public void shouldEncodeTheFirstRecordAgainstZeros() {
+        final TelemetryRecord record = new TelemetryRecord(1);
+        record.set(Field.SEQUENCE_NUMBER, 300);
+        record.set(Field.STEERING_DEGREES, -2);
+
+        final byte[] encoded = encoder.encode(record);
+
+        // Mask with bit 0 and 7, the zigzag encoded 300 (600) in two bytes and -2 (3) in one byte
+        assertThat(encoded.length, is(5));
+        assertThat(encoded[0], is((byte) 0x81));
+        assertThat(encoded[1], is((byte) 0x01));
+        assertThat(encoded[2], is((byte) (600 & 0x7F | 0x80)));
+        assertThat(encoded[3], is((byte) (600 >> 7)));
+        assertThat(encoded[4], is((byte) 3));
+    }
+
+    @Test
+    public void shouldOnlyEncodeTheChangedFields() {
+        final TelemetryRecord first = new TelemetryRecord(1);
+        first.set(Field.SEQUENCE_NUMBER, 41);
+        first.set(Field.HOUGH_MICROS, 4000);
+        first.set(Field.ENGINE_SPEED, 10);
+        encoder.encode(first);
+
+        final TelemetryRecord second = new TelemetryRecord(2);
+        second.set(Field.SEQUENCE_NUMBER, 42);
+        second.set(Field.HOUGH_MICROS, 4000);
+        second.set(Field.ENGINE_SPEED, 10);
+
+        final byte[] encoded = encoder.encode(second);
+
+        assertThat(encoded.length, is(2));
+        assertThat(encoded[0], is((byte) 0x01));
+        assertThat(encoded[1], is((byte) 2));
+    }
+
+    @Test
+    public void shouldEncodeRecordsWithoutChanges() {
+        final TelemetryRecord record = new TelemetryRecord(1);
+        encoder.encode(record);
+
+        assertThat(encoder.encode(record).length, is(1));
+    }
+}